@@ -0,0 +1,121 @@
+package bench;
+
+import core.FileChannelSink;
+import core.MappedFileSink;
+import core.OutputSink;
+import core.PartFileSink;
+import core.RangeWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Disk side only: ranges written from memory by several threads, then finish().
+// Compares part files + assembly with positional writes into the final file.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AssemblyBenchmark {
+    private static final int WRITE_SIZE = 16 * 1024;
+
+    // part files + assembleParts, FileChannel positional writes, memory-mapped windows
+    @Param({"parts", "positional", "mapped"})
+    public String sink;
+
+    @Param({"64"})
+    public int sizeMb;
+
+    @Param({"8"})
+    public int threads;
+
+    private final byte[] block = new byte[WRITE_SIZE];
+    private Path dir;
+    private Path output;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        new Random(1).nextBytes(block);
+        dir = Files.createTempDirectory("bench-assembly");
+        output = dir.resolve("assembled.bin");
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutput() throws IOException {
+        Files.deleteIfExists(output);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        executor.shutdown();
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long write() throws Exception {
+        long size = (long) sizeMb * 1024 * 1024;
+        int ranges = threads * 8;
+        long rangeSize = (size + ranges - 1) / ranges;
+        try (OutputSink out = open(output.toString(), size)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < ranges; i++) {
+                int id = i;
+                long start = i * rangeSize;
+                long end = Math.min(size, start + rangeSize) - 1;
+                tasks.add(executor.submit(() -> {
+                    try (RangeWriter range = out.openRange(id, start, end)) {
+                        for (long position = start; position <= end; position += WRITE_SIZE) {
+                            int length = (int) Math.min(WRITE_SIZE, end - position + 1);
+                            range.write(ByteBuffer.wrap(block, 0, length));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            out.finish();
+        }
+        return size;
+    }
+
+    private OutputSink open(String fileName, long size) throws IOException {
+        return switch (sink) {
+            case "parts" -> new PartFileSink(fileName);
+            case "positional" -> new FileChannelSink(fileName, size);
+            case "mapped" -> new MappedFileSink(fileName, size);
+            default -> throw new IllegalArgumentException("unknown sink " + sink);
+        };
+    }
+}
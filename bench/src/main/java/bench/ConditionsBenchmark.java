@@ -0,0 +1,93 @@
+package bench;
+
+import core.DownloadListener;
+import core.DownloadResult;
+import core.Downloader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import testserver.NetworkShaping;
+import testserver.RangeServer;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Fixed vs adaptive concurrency under simulated network conditions: 2 MB/s per connection and 20 ms
+// of latency, plus resets, stragglers, or a server ignoring ranges (single-stream fallback)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ConditionsBenchmark {
+    private static final int SIZE_MB = 16; // the shaped scenarios are slow, keep the file small
+    private static final int ADAPTIVE_MAX_THREADS = 32;
+
+    @Param({"capped", "resets", "stragglers", "ranges-ignored"})
+    public String scenario;
+
+    @Param({"fixed", "adaptive"})
+    public String strategy;
+
+    @Param({"8"})
+    public int connections;
+
+    private RangeServer server;
+    private String url;
+    private String lastOutput;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        server = new RangeServer();
+        server.addGenerated("conditions.bin", SIZE_MB * 1024 * 1024);
+        url = server.getUrl("conditions.bin");
+        NetworkShaping shaping = server.getShaping();
+        shaping.setBytesPerSecond(2 * 1024 * 1024);
+        shaping.setLatencyMillis(20);
+        switch (scenario) {
+            case "capped" -> { }
+            case "resets" -> shaping.setResetProbability(0.05);
+            case "stragglers" -> shaping.setStragglerProbability(0.1);
+            case "ranges-ignored" -> shaping.setIgnoreRanges(true);
+            default -> throw new IllegalArgumentException("unknown scenario " + scenario);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutput() throws Exception {
+        if (lastOutput != null) {
+            Files.deleteIfExists(Paths.get(lastOutput));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.close();
+    }
+
+    @Benchmark
+    public long download() {
+        Downloader downloader = new Downloader(url, connections, "bin", DownloadListener.NONE);
+        if (strategy.equals("adaptive")) {
+            downloader.setAdaptiveConcurrency(ADAPTIVE_MAX_THREADS);
+        }
+        DownloadResult result = downloader.startDownload();
+        if (!result.isCompleted()) {
+            throw new IllegalStateException("benchmark download failed: " + result);
+        }
+        lastOutput = result.getOutputFileName();
+        return result.getFileSize();
+    }
+}
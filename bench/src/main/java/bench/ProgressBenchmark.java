@@ -0,0 +1,57 @@
+package bench;
+
+import core.DownloadProgress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cost of counting bytes from many reader threads at once: the engine's DownloadProgress
+// (LongAdder) against the alternatives it replaced. All threads update the same counter.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ProgressBenchmark {
+    private static final long READ_SIZE = 4096;
+
+    private final DownloadProgress progress = new DownloadProgress();
+    private final AtomicLong atomic = new AtomicLong();
+    private final Object lock = new Object();
+    private long locked;
+
+    @Benchmark
+    public void downloadProgress() {
+        progress.add(READ_SIZE);
+    }
+
+    @Benchmark
+    public long atomicLong() {
+        return atomic.addAndGet(READ_SIZE);
+    }
+
+    @Benchmark
+    public long synchronizedCounter() {
+        synchronized (lock) {
+            return locked += READ_SIZE;
+        }
+    }
+
+    // no accounting at all: the harness overhead the other cases are compared with
+    @Benchmark
+    public long baseline() {
+        return READ_SIZE;
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import core.ConnectionPool;
+import core.DownloadListener;
+import core.DownloadResult;
+import core.Downloader;
+import core.OutputMode;
+import core.UrlConnectionTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import testserver.RangeServer;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+// Full download path (HTTP read loop -> sink) against the loopback server, per read buffer size,
+// then with buffers sized from the measured throughput. One operation is one complete download.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferBenchmark {
+    @Param({"4096", "16384", "65536", "262144", "adaptive"})
+    public String readBuffer;
+
+    @Param({"64"})
+    public int sizeMb;
+
+    @Param({"8"})
+    public int connections;
+
+    private RangeServer server;
+    private String url;
+    private UrlConnectionTransport transport;
+    private String lastOutput;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        server = new RangeServer();
+        server.addGenerated("transfer.bin", sizeMb * 1024 * 1024);
+        url = server.getUrl("transfer.bin");
+        // one transport for the whole trial so the adaptive throughput estimate carries over
+        transport = new UrlConnectionTransport(ConnectionPool.shared(), readBuffer.equals("adaptive")
+                ? UrlConnectionTransport.ADAPTIVE_BUFFER_SIZE : Integer.parseInt(readBuffer));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutput() throws Exception {
+        if (lastOutput != null) {
+            Files.deleteIfExists(Paths.get(lastOutput));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.close();
+    }
+
+    @Benchmark
+    public long download() {
+        Downloader downloader = new Downloader(url, connections, "bin", OutputMode.DIRECT, DownloadListener.NONE);
+        downloader.setTransport(transport);
+        DownloadResult result = downloader.startDownload();
+        if (!result.isCompleted()) {
+            throw new IllegalStateException("benchmark download failed: " + result);
+        }
+        lastOutput = result.getOutputFileName();
+        return result.getFileSize();
+    }
+}
@@ -0,0 +1,268 @@
+import core.BandwidthLimiter;
+import core.DownloadJob;
+import core.DownloadListener;
+import core.DownloadManager;
+import core.DownloadPriority;
+import core.DownloadResult;
+import core.Downloader;
+import core.PdfMetadata;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+// Headless entry point: downloads a list of URLs through the download queue and reports throughput.
+// Exit code: 0 when every file completed, 1 when at least one failed, 2 on bad usage.
+public class BatchMain {
+    private static final int DEFAULT_THREADS = 4;
+    private static final int AUTO_INITIAL_THREADS = 4;
+    private static final int AUTO_MAX_THREADS = 32;
+
+    public static void main(String[] args) {
+        int threads = DEFAULT_THREADS;
+        boolean adaptive = false;
+        String format = "pdf";
+        int maxActive = DownloadManager.DEFAULT_MAX_ACTIVE;
+        int maxConnections = DownloadManager.DEFAULT_MAX_CONNECTIONS;
+        long limitKbps = 0;
+        boolean verbose = false;
+        boolean useCache = true;
+        boolean peek = false;
+        long smallKb = Downloader.DEFAULT_SMALL_FILE_SIZE / 1024;
+        boolean listOrder = false;
+        List<String> urls = new ArrayList<>();
+        Map<String, String> checksums = new HashMap<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-t":
+                        String t = args[++i];
+                        adaptive = t.equalsIgnoreCase("auto");
+                        threads = adaptive ? AUTO_INITIAL_THREADS : Integer.parseInt(t);
+                        break;
+                    case "-f":
+                        format = args[++i];
+                        break;
+                    case "-j":
+                        maxActive = Integer.parseInt(args[++i]);
+                        break;
+                    case "-c":
+                        maxConnections = Integer.parseInt(args[++i]);
+                        break;
+                    case "-l":
+                        limitKbps = Long.parseLong(args[++i]);
+                        break;
+                    case "-i":
+                        urls.addAll(readUrlList(args[++i], checksums));
+                        break;
+                    case "-v":
+                        verbose = true;
+                        break;
+                    case "-n":
+                        useCache = false;
+                        break;
+                    case "-p":
+                        peek = true;
+                        break;
+                    case "-s":
+                        smallKb = Long.parseLong(args[++i]);
+                        break;
+                    case "-o":
+                        listOrder = true;
+                        break;
+                    case "-h":
+                        usage();
+                        return;
+                    default:
+                        if (args[i].startsWith("-")) {
+                            throw new IllegalArgumentException("unknown option " + args[i]);
+                        }
+                        urls.add(args[i]);
+                }
+            }
+            if (threads <= 0 || maxActive <= 0 || maxConnections <= 0 || limitKbps < 0 || smallKb < 0) {
+                throw new IllegalArgumentException("counts and limits must be positive");
+            }
+            if (smallKb > Downloader.MAX_SMALL_FILE_SIZE / 1024) {
+                throw new IllegalArgumentException("-s is at most " + Downloader.MAX_SMALL_FILE_SIZE / 1024 + " kb");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | IOException e) {
+            System.err.println("[ERROR] " + (e instanceof ArrayIndexOutOfBoundsException
+                    ? "missing option value" : e.getMessage()));
+            usage();
+            System.exit(2);
+            return;
+        }
+        if (urls.isEmpty()) {
+            usage();
+            System.exit(2);
+            return;
+        }
+
+        BandwidthLimiter.shared().setGlobalLimit(limitKbps * 1024);
+        if (peek) {
+            System.exit(peek(urls, format, verbose));
+            return;
+        }
+        boolean logEngine = verbose;
+        DownloadListener listener = new DownloadListener() {
+            @Override
+            public void onLog(String message) {
+                if (logEngine) {
+                    System.err.println(message);
+                }
+            }
+
+            @Override
+            public void onFinish(DownloadResult result) {
+                printResult(result);
+            }
+        };
+
+        long start = System.nanoTime();
+        int failed = 0;
+        long totalBytes = 0;
+        try (DownloadManager manager = new DownloadManager(maxConnections, maxActive, listener)) {
+            if (!useCache) {
+                manager.setCache(null);
+            }
+            manager.setSmallFileSize(smallKb * 1024);
+            manager.setSizeOrdering(!listOrder);
+            // Ctrl-C / SIGTERM: the range journals are kept, rerunning the batch resumes
+            Runtime.getRuntime().addShutdownHook(new Thread(manager::close, "batch-shutdown"));
+
+            List<DownloadJob> jobs = new ArrayList<>();
+            for (String url : urls) {
+                jobs.add(manager.submit(url, format, threads, adaptive ? AUTO_MAX_THREADS : 0,
+                        DownloadPriority.NORMAL, checksums.get(url)));
+            }
+            for (DownloadJob job : jobs) {
+                try {
+                    DownloadResult result = job.getResult().join();
+                    if (result.isCompleted()) {
+                        totalBytes += result.getFileSize();
+                    } else {
+                        failed++;
+                    }
+                } catch (CompletionException e) {
+                    System.out.println("FAILED    " + job.getUrl() + " (" + e.getCause() + ")");
+                    failed++;
+                }
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d file(s), %d failed, %s in %.1f s: %.2f files/s, %.2f MB/s%n",
+                urls.size(), failed, formatBytes(totalBytes), seconds,
+                (urls.size() - failed) / seconds, totalBytes / seconds / (1024 * 1024));
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    // Metadata only, from a few small range requests per URL; nothing is downloaded
+    private static int peek(List<String> urls, String format, boolean verbose) {
+        int failed = 0;
+        for (String url : urls) {
+            Downloader downloader = new Downloader(url, 1, format, message -> {
+                if (verbose) {
+                    System.err.println(message);
+                }
+            });
+            try {
+                PdfMetadata metadata = downloader.peek();
+                System.out.printf("PDF       %s pages  %s%n", metadata.getPageCount() < 0 ? "?" : metadata.getPageCount(), url);
+                printField("title", metadata.getTitle());
+                printField("author", metadata.getAuthor());
+                printField("producer", metadata.getProducer());
+                if (metadata.isEncrypted()) {
+                    printField("encrypted", metadata.getEncryption() + (metadata.canPrint() ? "" : ", no printing")
+                            + (metadata.canCopy() ? "" : ", no copying"));
+                }
+            } catch (IOException e) {
+                System.out.println("FAILED    " + url + " (" + e.getMessage() + ")");
+                failed++;
+            }
+        }
+        return failed == 0 ? 0 : 1;
+    }
+
+    private static void printField(String name, String value) {
+        if (value != null) {
+            System.out.printf("          %-10s %s%n", name + ":", value);
+        }
+    }
+
+    private static synchronized void printResult(DownloadResult result) {
+        if (result.isCompleted()) {
+            System.out.printf("OK        %10s  %8.2f MB/s  %s -> %s%n", formatBytes(result.getFileSize()),
+                    result.getThroughput() / (1024 * 1024), result.getUrl(), result.getOutputFileName());
+        } else {
+            System.out.printf("%-9s %s%s%n", result.getStatus(), result.getUrl(),
+                    result.getFailure() != null ? " (" + result.getFailure().getMessage() + ")" : "");
+        }
+    }
+
+    // One URL per line, optionally followed by the file's SHA-256; blank lines and lines starting
+    // with # are ignored. "-" reads standard input.
+    private static List<String> readUrlList(String source, Map<String, String> checksums) throws IOException {
+        List<String> lines;
+        if (source.equals("-")) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            lines = in.lines().toList();
+        } else {
+            lines = Files.readAllLines(Paths.get(source), StandardCharsets.UTF_8);
+        }
+        List<String> urls = new ArrayList<>();
+        for (String line : lines) {
+            String[] fields = line.trim().split("\\s+");
+            String url = fields[0];
+            if (url.isEmpty() || url.startsWith("#")) {
+                continue;
+            }
+            if (fields.length > 2 || fields.length == 2 && !fields[1].matches("[0-9a-fA-F]{64}")) {
+                throw new IllegalArgumentException("bad line in " + source + ": " + line.trim());
+            }
+            urls.add(url);
+            if (fields.length == 2) {
+                checksums.put(url, fields[1]);
+            }
+        }
+        return urls;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        return String.format("%.1f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+
+    private static void usage() {
+        System.err.println("Usage: java BatchMain [options] <url>...");
+        System.err.println("  -i <file>   read URLs from a file, one per line (- for standard input),");
+        System.err.println("              each optionally followed by the file's SHA-256 to verify");
+        System.err.println("  -t <n|auto> connections per download (default " + DEFAULT_THREADS + ")");
+        System.err.println("  -f <ext>    output file extension (default pdf)");
+        System.err.println("  -j <n>      downloads running at once (default " + DownloadManager.DEFAULT_MAX_ACTIVE + ")");
+        System.err.println("  -c <n>      connection budget shared by all downloads (default "
+                + DownloadManager.DEFAULT_MAX_CONNECTIONS + ")");
+        System.err.println("  -l <kb/s>   global bandwidth limit (default unlimited)");
+        System.err.println("  -n          bypass the download cache (unchanged files are otherwise reused)");
+        System.err.println("  -s <kb>     files up to this size are fetched with a single request and no probe");
+        System.err.println("              (default " + Downloader.DEFAULT_SMALL_FILE_SIZE / 1024 + ", at most "
+                + Downloader.MAX_SMALL_FILE_SIZE / 1024 + "; 0 = always probe and split into ranges)");
+        System.err.println("  -o          start downloads in list order, without probing queued files for their");
+        System.err.println("              size first (one request less per file for long lists of small files)");
+        System.err.println("  -p          print PDF metadata (pages, title, producer, encryption) read with");
+        System.err.println("              a few range requests, without downloading");
+        System.err.println("  -v          print engine logs on standard error");
+    }
+}
@@ -0,0 +1,78 @@
+package core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Limites de débit partagées : une globale, une par hôte, plus celle de chaque téléchargement.
+// Toutes sont modifiables pendant les téléchargements ; 0 => illimité.
+public class BandwidthLimiter {
+    private static final long MAX_SLEEP_NANOS = 100_000_000; // revérifie l'annulation pendant l'attente
+
+    private static final BandwidthLimiter SHARED = new BandwidthLimiter();
+
+    private final TokenBucket global = new TokenBucket(0);
+    private final Map<String, TokenBucket> hosts = new ConcurrentHashMap<>();
+
+    public static BandwidthLimiter shared() {
+        return SHARED;
+    }
+
+    public void setGlobalLimit(long bytesPerSecond) {
+        global.setRate(bytesPerSecond);
+    }
+
+    public long getGlobalLimit() {
+        return global.getRate();
+    }
+
+    public void setHostLimit(String host, long bytesPerSecond) {
+        bucketFor(host).setRate(bytesPerSecond);
+    }
+
+    public long getHostLimit(String host) {
+        return bucketFor(host).getRate();
+    }
+
+    // Le seau de l'hôte est créé même sans limite, pour qu'une limite posée plus tard s'applique
+    // aux téléchargements déjà en cours
+    public Throttle throttle(String host, TokenBucket download) {
+        return new Throttle(List.of(global, bucketFor(host), download));
+    }
+
+    private TokenBucket bucketFor(String host) {
+        return hosts.computeIfAbsent(host == null ? "" : host, h -> new TokenBucket(0));
+    }
+
+    // Ensemble des seaux qu'une lecture doit traverser
+    public static class Throttle {
+        private final List<TokenBucket> buckets;
+
+        Throttle(List<TokenBucket> buckets) {
+            this.buckets = buckets;
+        }
+
+        // Bloque le temps nécessaire pour que n octets respectent toutes les limites.
+        // heartbeat est appelé pendant l'attente : une lecture freinée n'est pas une lecture bloquée.
+        public void acquire(int n, CancellationToken cancellation, Runnable heartbeat) throws IOException {
+            long wait = 0;
+            for (TokenBucket bucket : buckets) {
+                wait = Math.max(wait, bucket.reserve(n));
+            }
+            long deadline = System.nanoTime() + wait;
+            try {
+                while (wait > 0 && !cancellation.isCancelled()) {
+                    long slice = Math.min(wait, MAX_SLEEP_NANOS);
+                    Thread.sleep(slice / 1_000_000, (int) (slice % 1_000_000));
+                    heartbeat.run();
+                    wait = deadline - System.nanoTime();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("attente de débit interrompue");
+            }
+        }
+    }
+}
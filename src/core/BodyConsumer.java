@@ -0,0 +1,10 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public interface BodyConsumer {
+
+    // false pour arrêter la réception (le reste de la réponse est abandonné)
+    boolean accept(ByteBuffer data) throws IOException;
+}
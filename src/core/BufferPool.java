@@ -0,0 +1,97 @@
+package core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Tampons réutilisés d'une plage et d'un téléchargement à l'autre, par classes de taille
+// (puissances de deux). Un tampon direct s'écrit dans un FileChannel sans copie intermédiaire ;
+// sans pool, le JDK en alloue un temporaire pour chaque nouveau thread (virtuel compris).
+// Le pool de tampons sur tableau sert aux API qui ne lisent que dans un byte[] (InputStream).
+public class BufferPool {
+    public static final int MIN_SIZE = 16 * 1024;
+    public static final int MAX_SIZE = 1024 * 1024;
+    public static final long DEFAULT_MAX_RETAINED = 64L * 1024 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool(true, DEFAULT_MAX_RETAINED);
+    private static final BufferPool SHARED_HEAP = new BufferPool(false, DEFAULT_MAX_RETAINED);
+
+    private final boolean direct;
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> free; // une file par classe
+    private final long maxRetained;   // au-delà, les tampons rendus sont laissés au GC
+    private final AtomicLong retained = new AtomicLong();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    public BufferPool(boolean direct, long maxRetained) {
+        this.direct = direct;
+        this.maxRetained = maxRetained;
+        int classes = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+        List<ConcurrentLinkedQueue<ByteBuffer>> queues = new ArrayList<>(classes);
+        for (int i = 0; i < classes; i++) {
+            queues.add(new ConcurrentLinkedQueue<>());
+        }
+        this.free = List.copyOf(queues);
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    public static BufferPool sharedHeap() {
+        return SHARED_HEAP;
+    }
+
+    // Tampon vidé d'au moins size octets (arrondi à la classe supérieure, borné à MAX_SIZE)
+    public ByteBuffer acquire(int size) {
+        int index = classIndex(size);
+        ByteBuffer buffer = free.get(index).poll();
+        if (buffer != null) {
+            retained.addAndGet(-buffer.capacity());
+            reuses.increment();
+            return buffer.clear();
+        }
+        allocations.increment();
+        return direct ? ByteBuffer.allocateDirect(MIN_SIZE << index) : ByteBuffer.allocate(MIN_SIZE << index);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() != direct || Integer.bitCount(buffer.capacity()) != 1
+                || buffer.capacity() < MIN_SIZE || buffer.capacity() > MAX_SIZE) {
+            return; // pas un tampon du pool
+        }
+        if (retained.addAndGet(buffer.capacity()) > maxRetained) {
+            retained.addAndGet(-buffer.capacity());
+            return;
+        }
+        free.get(classIndex(buffer.capacity())).offer(buffer);
+    }
+
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    public long getReuses() {
+        return reuses.sum();
+    }
+
+    public long getRetainedBytes() {
+        return retained.get();
+    }
+
+    // Taille de classe retenue pour une demande de size octets
+    public static int classSize(int size) {
+        return MIN_SIZE << classIndex(size);
+    }
+
+    private static int classIndex(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        int rounded = Math.min(MAX_SIZE, Integer.highestOneBit(size - 1) << 1);
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+}
@@ -0,0 +1,155 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+
+// Corps d'une réponse 206 à une requête multi-plages (RFC 9110, 14.6), lu au fil de l'eau :
+// multipart/byteranges, ou une seule partie décrite par Content-Range quand le serveur a fusionné les plages.
+// Chaque partie est transmise à sa position dans le fichier, rognée aux plages demandées.
+class ByteRangesBody implements BodyConsumer {
+    private static final int MAX_LINE = 8192;
+
+    private final List<long[]> ranges;
+    private final RangeConsumer consumer;
+    private final String delimiter; // "--" + boundary, null pour une réponse en une seule partie
+    private final StringBuilder line = new StringBuilder();
+    private boolean inHeaders; // entre une ligne de délimitation et la ligne vide qui suit
+    private String partRange;
+    private long partPosition; // position dans le fichier du prochain octet de la partie
+    private long partRemaining; // 0 entre deux parties
+    private boolean done;
+
+    ByteRangesBody(List<long[]> ranges, String contentType, String contentRange, RangeConsumer consumer)
+            throws IOException {
+        this.ranges = ranges;
+        this.consumer = consumer;
+        String boundary = boundary(contentType);
+        if (boundary != null) {
+            delimiter = "--" + boundary;
+        } else if (contentRange != null) {
+            delimiter = null;
+            startPart(contentRange);
+        } else {
+            throw new IOException("réponse multi-plages sans Content-Range ni multipart/byteranges");
+        }
+    }
+
+    @Override
+    public boolean accept(ByteBuffer data) throws IOException {
+        while (data.hasRemaining() && !done) {
+            if (partRemaining > 0) {
+                int n = (int) Math.min(data.remaining(), partRemaining);
+                int next = data.position() + n;
+                boolean more = deliver(partPosition, data.slice(data.position(), n));
+                data.position(next);
+                partPosition += n;
+                partRemaining -= n;
+                if (partRemaining == 0 && delimiter == null) {
+                    done = true;
+                }
+                if (!more) {
+                    return false;
+                }
+            } else {
+                readLine(data);
+            }
+        }
+        data.position(data.limit()); // épilogue éventuel
+        return true;
+    }
+
+    // Vrai une fois la dernière partie reçue en entier
+    boolean isComplete() {
+        return done;
+    }
+
+    private void readLine(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            char c = (char) (data.get() & 0xff);
+            if (c == '\n') {
+                int end = line.length() > 0 && line.charAt(line.length() - 1) == '\r' ? line.length() - 1 : line.length();
+                String text = line.substring(0, end);
+                line.setLength(0);
+                endOfLine(text);
+                return;
+            }
+            if (line.length() == MAX_LINE) {
+                throw new IOException("réponse multipart/byteranges invalide : ligne trop longue");
+            }
+            line.append(c);
+        }
+    }
+
+    private void endOfLine(String text) throws IOException {
+        if (inHeaders) {
+            if (text.isEmpty()) {
+                if (partRange == null) {
+                    throw new IOException("réponse multipart/byteranges invalide : partie sans Content-Range");
+                }
+                inHeaders = false;
+                startPart(partRange);
+            } else if (text.regionMatches(true, 0, "Content-Range:", 0, 14)) {
+                partRange = text.substring(14).trim();
+            }
+        } else if (text.equals(delimiter + "--")) {
+            done = true;
+        } else if (text.equals(delimiter)) {
+            inHeaders = true;
+            partRange = null;
+        }
+        // sinon préambule ou fin de ligne après les données d'une partie
+    }
+
+    // "bytes a-b/total" ou "bytes a-b/*"
+    private void startPart(String contentRange) throws IOException {
+        String value = contentRange.trim();
+        int dash = value.indexOf('-');
+        int slash = value.indexOf('/');
+        if (!value.regionMatches(true, 0, "bytes ", 0, 6) || dash < 0 || slash < dash) {
+            throw new IOException("Content-Range invalide : " + contentRange);
+        }
+        try {
+            long first = Long.parseLong(value.substring(6, dash).trim());
+            long last = Long.parseLong(value.substring(dash + 1, slash).trim());
+            if (last < first) {
+                throw new IOException("Content-Range invalide : " + contentRange);
+            }
+            partPosition = first;
+            partRemaining = last - first + 1;
+        } catch (NumberFormatException e) {
+            throw new IOException("Content-Range invalide : " + contentRange);
+        }
+    }
+
+    // Transmet la partie des octets [position, position + data.remaining()[ qui tombe dans les plages demandées
+    private boolean deliver(long position, ByteBuffer data) throws IOException {
+        long end = position + data.remaining();
+        for (long[] range : ranges) {
+            long from = Math.max(position, range[0]);
+            long to = Math.min(end, range[1] + 1);
+            if (from < to && !consumer.accept(from, data.slice((int) (from - position), (int) (to - from)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("multipart/byteranges")) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            String p = parameter.trim();
+            if (p.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String value = p.substring(9).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package core;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Annulation d'un téléchargement : les lectures bloquantes en cours sont débloquées
+// en fermant les ressources enregistrées (connexions, flux...).
+public class CancellationToken {
+    private final Set<AutoCloseable> resources = ConcurrentHashMap.newKeySet();
+    private final AutoCloseable link = this::cancel;
+    private CancellationToken parent;
+    private volatile boolean cancelled;
+    private volatile Exception failure;
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Arrêt sur erreur fatale : toutes les tâches s'arrêtent, la cause est conservée
+    public void fail(Exception cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        cancel();
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        for (AutoCloseable resource : resources) {
+            closeQuietly(resource);
+        }
+        resources.clear();
+    }
+
+    // Jeton d'une seule requête : annulé avec le parent, ou seul (requête bloquée)
+    public CancellationToken newChild() {
+        CancellationToken child = new CancellationToken();
+        child.parent = this;
+        register(child.link);
+        return child;
+    }
+
+    public void detach() {
+        if (parent != null) {
+            parent.unregister(link);
+        }
+    }
+
+    public void register(AutoCloseable resource) {
+        resources.add(resource);
+        if (cancelled) {
+            closeQuietly(resource);
+        }
+    }
+
+    public void unregister(AutoCloseable resource) {
+        resources.remove(resource);
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        try {
+            resource.close();
+        } catch (Exception ignored) {
+            // déjà fermée
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package core;
+
+import java.io.IOException;
+
+// Le fichier reçu ne correspond pas à la somme de contrôle attendue
+public class ChecksumMismatchException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final String expected;
+    private final String actual;
+
+    public ChecksumMismatchException(String algorithm, String expected, String actual) {
+        super("somme " + algorithm + " incorrecte : attendue " + expected + ", obtenue " + actual);
+        this.expected = expected;
+        this.actual = actual;
+    }
+
+    public String getExpected() {
+        return expected;
+    }
+
+    public String getActual() {
+        return actual;
+    }
+}
@@ -0,0 +1,98 @@
+package core;
+
+// Plage d'octets [startByte, endByte] prise en charge par un seul thread à la fois.
+// endByte peut être réduit pendant le transfert quand un autre thread vole la fin du bloc.
+public class Chunk {
+    private final int id;
+    private final long startByte;
+    private final boolean stolen;
+    private long endByte;
+    private long position; // prochain octet à écrire
+    private int failures;
+    private long notBefore; // System.currentTimeMillis() avant lequel ne pas réessayer
+
+    public Chunk(int id, long startByte, long endByte) {
+        this(id, startByte, endByte, false);
+    }
+
+    private Chunk(int id, long startByte, long endByte, boolean stolen) {
+        this.id = id;
+        this.stolen = stolen;
+        this.startByte = startByte;
+        this.endByte = endByte;
+        this.position = startByte;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getStartByte() {
+        return startByte;
+    }
+
+    public boolean isStolen() {
+        return stolen;
+    }
+
+    public synchronized long getEndByte() {
+        return endByte;
+    }
+
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    public synchronized long remaining() {
+        return endByte - position + 1;
+    }
+
+    // Réserve jusqu'à len octets avant de les écrire ; 0 quand le bloc est terminé
+    public synchronized int claim(int len) {
+        int n = (int) Math.min(len, endByte - position + 1);
+        if (n <= 0) {
+            return 0;
+        }
+        position += n;
+        return n;
+    }
+
+    // Annule une réservation dont l'écriture a échoué
+    public synchronized void unclaim(int n) {
+        position -= n;
+    }
+
+    public synchronized int recordFailure(long retryAt) {
+        notBefore = retryAt;
+        return ++failures;
+    }
+
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    synchronized long getNotBefore() {
+        return notBefore;
+    }
+
+    // Cède la seconde moitié de ce qui reste, alignée sur align, ou null si trop petit
+    synchronized Chunk split(int newId, long minSize, long align) {
+        long remaining = endByte - position + 1;
+        if (remaining < 2 * minSize) {
+            return null;
+        }
+        long mid = position + remaining / 2;
+        mid -= (mid - startByte) % align;
+        if (mid <= position || endByte - mid + 1 < minSize) {
+            return null;
+        }
+        Chunk stolen = new Chunk(newId, mid, endByte, true);
+        endByte = mid - 1;
+        return stolen;
+    }
+
+    @Override
+    public String toString() {
+        return "bloc " + id + " (" + startByte + "-" + getEndByte() + ")";
+    }
+}
@@ -0,0 +1,253 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+// File partagée de petits blocs : les threads piochent dedans au fur et à mesure,
+// et quand elle est vide un thread libre reprend la moitié du bloc le plus en retard.
+// Les blocs en échec y reviennent avec un délai avant la prochaine tentative.
+// Des plages prioritaires (début et fin d'un PDF linéarisé) peuvent passer en tête de file.
+public class ChunkScheduler implements AutoCloseable {
+    public static final long MIN_CHUNK_SIZE = 256 * 1024;
+    public static final long MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final LinkedList<Chunk> pending = new LinkedList<>();
+    private final List<Chunk> active = new ArrayList<>();
+    private final long minStealSize;
+    private final List<long[]> priority = new ArrayList<>(); // plages prioritaires encore à télécharger
+    private Runnable priorityListener;
+    private int nextId;
+    private boolean aborted;
+
+    public ChunkScheduler(long fileSize, long chunkSize) {
+        this(List.of(new long[]{0, fileSize - 1}), chunkSize);
+    }
+
+    // Découpe seulement les plages [début, fin] données, par exemple celles qui manquent après une reprise
+    public ChunkScheduler(List<long[]> ranges, long chunkSize) {
+        this(ranges, List.of(), chunkSize);
+    }
+
+    // Les parties de ranges couvertes par priorityRanges sont découpées en petits blocs placés en tête de file,
+    // pour que toutes les connexions s'y mettent ; bornes alignées sur RangeJournal.BLOCK_SIZE
+    public ChunkScheduler(List<long[]> ranges, List<long[]> priorityRanges, long chunkSize) {
+        this.minStealSize = Math.min(MIN_CHUNK_SIZE, chunkSize);
+        List<long[]> urgent = align(priorityRanges);
+        List<long[]> rest = new ArrayList<>();
+        for (long[] range : ranges) {
+            long start = range[0];
+            for (long[] p : urgent) {
+                long from = Math.max(start, p[0]);
+                long to = Math.min(range[1], p[1]);
+                if (from > to) {
+                    continue;
+                }
+                if (from > start) {
+                    rest.add(new long[]{start, from - 1});
+                }
+                priority.add(new long[]{from, to});
+                start = to + 1;
+            }
+            if (start <= range[1]) {
+                rest.add(new long[]{start, range[1]});
+            }
+        }
+        split(priority, Math.min(chunkSize, MIN_CHUNK_SIZE));
+        split(rest, chunkSize);
+    }
+
+    // Multiple de RangeJournal.BLOCK_SIZE pour que chaque bloc terminé soit journalisable
+    public static long chunkSizeFor(long fileSize, int numThreads) {
+        long size = fileSize / ((long) numThreads * CHUNKS_PER_THREAD);
+        size = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+        return (size + RangeJournal.BLOCK_SIZE - 1) / RangeJournal.BLOCK_SIZE * RangeJournal.BLOCK_SIZE;
+    }
+
+    public synchronized int getChunkCount() {
+        return nextId;
+    }
+
+    // Prochain bloc à télécharger, ou null quand il ne reste plus rien à prendre.
+    // Attend si seuls restent des blocs en délai de nouvelle tentative.
+    public synchronized Chunk next() throws InterruptedException {
+        while (!aborted) {
+            long now = System.currentTimeMillis();
+            long wakeUp = Long.MAX_VALUE;
+            for (Iterator<Chunk> it = pending.iterator(); it.hasNext(); ) {
+                Chunk chunk = it.next();
+                if (chunk.getNotBefore() <= now) {
+                    it.remove();
+                    active.add(chunk);
+                    return chunk;
+                }
+                wakeUp = Math.min(wakeUp, chunk.getNotBefore());
+            }
+            Chunk stolen = steal();
+            if (stolen != null) {
+                active.add(stolen);
+                return stolen;
+            }
+            if (pending.isEmpty()) {
+                return null;
+            }
+            wait(Math.max(1, wakeUp - now));
+        }
+        return null;
+    }
+
+    // first et d'autres petits blocs prêts à partir, à demander ensemble dans une requête multi-plages :
+    // au plus maxRanges blocs de moins de smallSize octets chacun et maxBytes en tout, triés par position
+    public synchronized List<Chunk> nextBatch(Chunk first, int maxRanges, long smallSize, long maxBytes) {
+        List<Chunk> batch = new ArrayList<>();
+        batch.add(first);
+        long total = first.remaining();
+        long now = System.currentTimeMillis();
+        for (Iterator<Chunk> it = pending.iterator(); it.hasNext() && batch.size() < maxRanges; ) {
+            Chunk chunk = it.next();
+            long remaining = chunk.remaining();
+            if (chunk.getNotBefore() <= now && remaining < smallSize && total + remaining <= maxBytes) {
+                it.remove();
+                active.add(chunk);
+                batch.add(chunk);
+                total += remaining;
+            }
+        }
+        batch.sort((a, b) -> Long.compare(a.getPosition(), b.getPosition()));
+        return batch;
+    }
+
+    // Appelé une seule fois, hors du verrou, quand les plages prioritaires sont toutes écrites
+    public synchronized void setPriorityListener(Runnable listener) {
+        this.priorityListener = listener;
+    }
+
+    // Faux quand aucune plage prioritaire ne restait à télécharger
+    public synchronized boolean hasPriorityRanges() {
+        return !priority.isEmpty();
+    }
+
+    public void complete(Chunk chunk) {
+        Runnable ready = null;
+        synchronized (this) {
+            active.remove(chunk);
+            if (!priority.isEmpty() && !overlapsPriority(pending) && !overlapsPriority(active)) {
+                priority.clear();
+                ready = priorityListener;
+            }
+        }
+        if (ready != null) {
+            ready.run();
+        }
+    }
+
+    // Rend un bloc inachevé : il repartira de sa position courante
+    public synchronized void release(Chunk chunk) {
+        active.remove(chunk);
+        if (chunk.remaining() > 0) {
+            pending.addFirst(chunk);
+        }
+        notifyAll();
+    }
+
+    // Rend un bloc en échec, découpé en plusieurs morceaux s'il échoue trop souvent,
+    // pour que des threads différents (et des connexions différentes) s'en chargent.
+    public synchronized void retry(Chunk chunk, int pieces) {
+        active.remove(chunk);
+        long position = chunk.getPosition();
+        long end = chunk.getEndByte();
+        long remaining = end - position + 1;
+        if (remaining <= 0) {
+            notifyAll();
+            return;
+        }
+        long pieceSize = (remaining + pieces - 1) / pieces;
+        pieceSize = (pieceSize + RangeJournal.BLOCK_SIZE - 1) / RangeJournal.BLOCK_SIZE * RangeJournal.BLOCK_SIZE;
+        if (pieces <= 1 || remaining <= RangeJournal.BLOCK_SIZE) {
+            pending.addFirst(chunk);
+        } else {
+            for (long start = position; start <= end; start += pieceSize) {
+                Chunk piece = new Chunk(nextId++, start, Math.min(start + pieceSize - 1, end));
+                piece.recordFailure(chunk.getNotBefore());
+                pending.add(piece);
+            }
+        }
+        notifyAll();
+    }
+
+    // Vrai quand tous les blocs ont été menés à terme
+    public synchronized boolean isDrained() {
+        return pending.isEmpty() && active.isEmpty();
+    }
+
+    @Override
+    public synchronized void close() {
+        aborted = true;
+        notifyAll();
+    }
+
+    private void split(List<long[]> ranges, long chunkSize) {
+        for (long[] range : ranges) {
+            for (long start = range[0]; start <= range[1]; start += chunkSize) {
+                long end = Math.min(start + chunkSize - 1, range[1]);
+                pending.add(new Chunk(nextId++, start, end));
+            }
+        }
+    }
+
+    private boolean overlapsPriority(List<Chunk> chunks) {
+        for (Chunk c : chunks) {
+            long position = c.getPosition();
+            long end = c.getEndByte();
+            for (long[] p : priority) {
+                if (position <= p[1] && end >= p[0]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Triées, élargies aux blocs du journal et fusionnées quand elles se touchent
+    private static List<long[]> align(List<long[]> ranges) {
+        List<long[]> sorted = new ArrayList<>();
+        for (long[] range : ranges) {
+            long start = range[0] / RangeJournal.BLOCK_SIZE * RangeJournal.BLOCK_SIZE;
+            long end = (range[1] / RangeJournal.BLOCK_SIZE + 1) * RangeJournal.BLOCK_SIZE - 1;
+            sorted.add(new long[]{start, end});
+        }
+        sorted.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : sorted) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    private Chunk steal() {
+        Chunk straggler = null;
+        long maxRemaining = 0;
+        for (Chunk c : active) {
+            long remaining = c.remaining();
+            if (remaining > maxRemaining) {
+                maxRemaining = remaining;
+                straggler = c;
+            }
+        }
+        if (straggler == null) {
+            return null;
+        }
+        Chunk stolen = straggler.split(nextId, minStealSize, minStealSize);
+        if (stolen != null) {
+            nextId++;
+        }
+        return stolen;
+    }
+}
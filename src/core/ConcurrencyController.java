@@ -0,0 +1,142 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Ajuste le nombre de connexions pendant le téléchargement (AIMD) :
+// +1 tant que le débit global progresse, retour en arrière quand il stagne,
+// division par deux quand le serveur renvoie des erreurs ou 429/503.
+public class ConcurrencyController {
+    private static final long SAMPLE_INTERVAL_MS = 2000;
+    private static final double GAIN_THRESHOLD = 1.05;
+
+    private final int minConnections;
+    private final int maxConnections;
+    private final Runnable spawner;
+    private final Consumer<String> logger;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicBoolean throttled = new AtomicBoolean();
+    private volatile int target;
+    private volatile double throughput; // octets/s sur le dernier échantillon
+    private volatile boolean running;
+    private Thread sampler;
+
+    public ConcurrencyController(int initial, int minConnections, int maxConnections,
+                                 Runnable spawner, Consumer<String> logger) {
+        this.minConnections = Math.max(1, minConnections);
+        this.maxConnections = Math.max(this.minConnections, maxConnections);
+        this.target = Math.max(this.minConnections, Math.min(this.maxConnections, initial));
+        this.spawner = spawner;
+        this.logger = logger;
+    }
+
+    public void start() {
+        running = true;
+        spawnUpToTarget();
+        sampler = new Thread(this::sampleLoop, "concurrency-controller");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (sampler != null) {
+            sampler.interrupt();
+        }
+    }
+
+    public void recordBytes(long n) {
+        bytes.add(n);
+    }
+
+    public void recordError() {
+        errors.incrementAndGet();
+    }
+
+    // 429 Too Many Requests / 503 Service Unavailable
+    public void recordThrottled() {
+        throttled.set(true);
+    }
+
+    // Appelé par un thread entre deux blocs : true s'il doit s'arrêter
+    public boolean shouldRetire() {
+        while (true) {
+            int current = active.get();
+            if (current <= target) {
+                return false;
+            }
+            if (active.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void workerFinished() {
+        active.decrementAndGet();
+    }
+
+    public int getTarget() {
+        return target;
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    private void spawnUpToTarget() {
+        while (running && active.get() < target) {
+            active.incrementAndGet();
+            spawner.run();
+        }
+    }
+
+    private void sampleLoop() {
+        double previous = 0;
+        boolean lastWasIncrease = false;
+        long lastTime = System.nanoTime();
+        long lastBytes = 0;
+
+        while (running) {
+            try {
+                Thread.sleep(SAMPLE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            long total = bytes.sum();
+            double current = (total - lastBytes) * 1e9 / (now - lastTime);
+            lastTime = now;
+            lastBytes = total;
+            throughput = current;
+
+            int before = target;
+            int failures = errors.getAndSet(0);
+            if (throttled.getAndSet(false) || failures > 0) {
+                target = Math.max(minConnections, before / 2);
+                lastWasIncrease = false;
+            } else if (current > previous * GAIN_THRESHOLD) {
+                target = Math.min(maxConnections, before + 1);
+                lastWasIncrease = target > before;
+            } else if (lastWasIncrease) {
+                // la dernière connexion ajoutée n'a rien apporté
+                target = Math.max(minConnections, before - 1);
+                lastWasIncrease = false;
+            }
+            previous = current;
+
+            if (target != before) {
+                logger.accept(String.format("Concurrence ajustée : %d -> %d connexions (%.1f Mo/s)",
+                        before, target, current / (1024 * 1024)));
+            }
+            spawnUpToTarget(); // remplace aussi les threads morts sur erreur
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+// Plafond global de connexions simultanées, partagé entre les téléchargements actifs.
+// Chaque téléchargement a droit à une part proportionnelle à son poids (priorité) ;
+// il peut la dépasser tant qu'aucun autre n'attend en dessous de la sienne.
+public class ConnectionBudget {
+    private static final long WAIT_STEP_MS = 250; // revérifie la condition d'abandon pendant l'attente
+
+    private final int capacity;
+    private final Map<Object, Share> shares = new HashMap<>();
+    private int inUse;
+    private int totalWeight;
+
+    public ConnectionBudget(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getInUse() {
+        return inUse;
+    }
+
+    public synchronized void register(Object owner, int weight) {
+        if (!shares.containsKey(owner)) {
+            Share share = new Share(Math.max(1, weight));
+            shares.put(owner, share);
+            totalWeight += share.weight;
+            notifyAll(); // les parts des autres diminuent
+        }
+    }
+
+    public synchronized void unregister(Object owner) {
+        Share share = shares.remove(owner);
+        if (share != null) {
+            totalWeight -= share.weight;
+            inUse -= share.held;
+            notifyAll();
+        }
+    }
+
+    // Bloque jusqu'à obtenir une connexion ; false si abandon devient vrai entre-temps
+    // (téléchargement annulé, ou plus rien à télécharger)
+    public synchronized boolean acquire(Object owner, BooleanSupplier abandon) throws InterruptedException {
+        Share share = shares.get(owner);
+        if (share == null) {
+            throw new IllegalStateException("téléchargement non enregistré auprès du budget de connexions");
+        }
+        share.waiting++;
+        try {
+            while (!abandon.getAsBoolean() && !mayAcquire(share)) {
+                wait(WAIT_STEP_MS);
+            }
+            if (abandon.getAsBoolean()) {
+                return false;
+            }
+            share.held++;
+            inUse++;
+            return true;
+        } finally {
+            share.waiting--;
+        }
+    }
+
+    public synchronized void release(Object owner) {
+        Share share = shares.get(owner);
+        if (share != null && share.held > 0) {
+            share.held--;
+            inUse--;
+            notifyAll();
+        }
+    }
+
+    public synchronized int fairShare(Object owner) {
+        Share share = shares.get(owner);
+        return share == null ? 0 : fairShare(share);
+    }
+
+    private int fairShare(Share share) {
+        return Math.max(1, capacity * share.weight / totalWeight);
+    }
+
+    private boolean mayAcquire(Share share) {
+        if (inUse >= capacity) {
+            return false;
+        }
+        if (share.held < fairShare(share)) {
+            return true;
+        }
+        // au-delà de sa part : seulement si personne n'attend la sienne
+        for (Share other : shares.values()) {
+            if (other != share && other.waiting > 0 && other.held < fairShare(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Share {
+        final int weight;
+        int held;
+        int waiting;
+
+        Share(int weight) {
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package core;
+
+import javax.net.ssl.*;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Connexions keep-alive partagées entre plages, reprises et téléchargements successifs.
+// Les sockets sont mises en cache par la JVM (HttpURLConnection) ou par le HttpClient partagé ;
+// le pool fournit un contexte TLS commun (reprise de session) et compte les nouvelles connexions
+// TLS par hôte. En HTTP clair la JVM ne permet pas de les distinguer des réutilisations.
+public class ConnectionPool {
+    public static final int MAX_CONNECTIONS_PER_HOST = 64;
+
+    static {
+        // Lu une seule fois par le cache keep-alive de HttpURLConnection (5 par défaut)
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(MAX_CONNECTIONS_PER_HOST));
+        }
+    }
+
+    private static final ConnectionPool SHARED = new ConnectionPool();
+
+    private final Map<String, HostStats> stats = new ConcurrentHashMap<>();
+    private final SSLContext sslContext;
+    private final SSLSocketFactory socketFactory;
+    private final HttpClient httpClient;
+
+    private ConnectionPool() {
+        try {
+            SSLContext delegate = SSLContext.getInstance("TLS");
+            delegate.init(null, null, null);
+            this.sslContext = new CountingSSLContext(delegate, this);
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new IllegalStateException("TLS indisponible", e);
+        }
+        this.socketFactory = sslContext.getSocketFactory();
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .sslContext(sslContext)
+                .build();
+    }
+
+    public static ConnectionPool shared() {
+        return SHARED;
+    }
+
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    // Ouvre une connexion qui profitera du cache keep-alive et du contexte TLS partagé
+    public HttpURLConnection open(String url) throws IOException {
+        URL target;
+        try {
+            target = URI.create(url).toURL();
+        } catch (IllegalArgumentException e) {
+            throw new MalformedURLException("URL invalide : " + url);
+        }
+        HttpURLConnection conn = (HttpURLConnection) target.openConnection();
+        if (conn instanceof HttpsURLConnection) {
+            // même instance de fabrique => les connexions restent réutilisables entre elles
+            ((HttpsURLConnection) conn).setSSLSocketFactory(socketFactory);
+        }
+        recordRequest(target.getHost());
+        return conn;
+    }
+
+    public void recordRequest(String host) {
+        statsFor(host).requests.increment();
+    }
+
+    public HostStats getStats(String host) {
+        return statsFor(host);
+    }
+
+    public Map<String, HostStats> getAllStats() {
+        return Map.copyOf(stats);
+    }
+
+    private HostStats statsFor(String host) {
+        return stats.computeIfAbsent(host == null ? "" : host, h -> new HostStats());
+    }
+
+    public static class HostStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder newTlsConnections = new LongAdder();
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getNewTlsConnections() {
+            return newTlsConnections.sum();
+        }
+
+        // Requêtes servies sur une connexion TLS déjà ouverte
+        public long getReusedTlsConnections() {
+            return Math.max(0, getRequests() - getNewTlsConnections());
+        }
+
+        @Override
+        public String toString() {
+            return getRequests() + " requêtes, " + getNewTlsConnections() + " nouvelles connexions TLS";
+        }
+    }
+
+    // Contexte TLS qui délègue tout au contexte standard en comptant les connexions créées
+    private static class CountingSSLContext extends SSLContext {
+        CountingSSLContext(SSLContext delegate, ConnectionPool pool) {
+            super(new CountingSpi(delegate, pool), delegate.getProvider(), delegate.getProtocol());
+        }
+    }
+
+    private static class CountingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+        private final ConnectionPool pool;
+
+        CountingSpi(SSLContext delegate, ConnectionPool pool) {
+            this.delegate = delegate;
+            this.pool = pool;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+            // déjà initialisé
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return new CountingSocketFactory(delegate.getSocketFactory(), pool);
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            // HttpClient : un moteur TLS par nouvelle connexion
+            pool.statsFor(host).newTlsConnections.increment();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+    }
+
+    private static class CountingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+        private final ConnectionPool pool;
+
+        CountingSocketFactory(SSLSocketFactory delegate, ConnectionPool pool) {
+            this.delegate = delegate;
+            this.pool = pool;
+        }
+
+        private Socket counted(String host, Socket socket) {
+            pool.statsFor(host).newTlsConnections.increment();
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        // Chemin utilisé par HttpsURLConnection : l'hôte n'est connu qu'à la poignée de main
+        @Override
+        public Socket createSocket() throws IOException {
+            Socket socket = delegate.createSocket();
+            if (socket instanceof SSLSocket) {
+                ((SSLSocket) socket).addHandshakeCompletedListener(
+                        e -> pool.statsFor(e.getSession().getPeerHost()).newTlsConnections.increment());
+            }
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return counted(host, delegate.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return counted(host, delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return counted(host, delegate.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return counted(host.getHostName(), delegate.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return counted(address.getHostName(), delegate.createSocket(address, port, localAddress, localPort));
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+// Cache local des fichiers téléchargés, indexé par URL. Chaque entrée garde les validateurs du serveur
+// (ETag, Last-Modified) et la somme SHA-256 du contenu ; une réponse 304 à la revalidation suffit
+// pour reprendre le fichier en cache. Un fichier téléchargé entre dans le cache par un lien physique
+// quand le système de fichiers le permet, sinon par une copie ; il en ressort toujours par une copie
+// dont la somme est revérifiée, si bien qu'un fichier livré modifié sur place n'est jamais repris.
+// Au-delà de maxBytes, les entrées les moins récemment utilisées sont supprimées ; une entrée dont
+// les données sont encore liées au fichier livré n'occupe rien de plus et n'est pas comptée.
+public class DownloadCache {
+    public static final Path DEFAULT_DIR = Paths.get("downloads", ".cache");
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024 * 1024;
+
+    private static final DownloadCache SHARED = new DownloadCache(DEFAULT_DIR, DEFAULT_MAX_BYTES);
+
+    private final Path dir;
+    private volatile long maxBytes;
+    private Map<String, Entry> entries; // chargé à la première utilisation
+
+    public DownloadCache(Path dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    public static DownloadCache shared() {
+        return SHARED;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    // Appliqué dès le prochain ajout
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Octets occupés par le cache seul, sans les entrées encore liées à leur fichier livré
+    public synchronized long getTotalBytes() throws IOException {
+        load();
+        long total = 0;
+        for (Entry entry : entries.values()) {
+            total += occupiedBytes(entry);
+        }
+        return total;
+    }
+
+    // null si l'URL n'est pas en cache
+    public synchronized Entry lookup(String url) throws IOException {
+        load();
+        Entry entry = entries.get(keyFor(url));
+        if (entry == null || !entry.url.equals(url)) {
+            return null;
+        }
+        if (!Files.isRegularFile(entry.data) || Files.size(entry.data) != entry.size) {
+            remove(entry); // fichier supprimé ou modifié hors du cache
+            return null;
+        }
+        return entry;
+    }
+
+    // Le contenu en cache devient le fichier target ; l'entrée passe en tête de l'ordre LRU.
+    // La somme est revérifiée pendant la copie : une copie en cache altérée n'est jamais livrée.
+    public void restore(Entry entry, Path target) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + ".cache-tmp");
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(entry.data), digest)) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!actual.equals(entry.sha256)) {
+            Files.deleteIfExists(tmp);
+            throw new IOException("copie en cache altérée (somme " + actual + ", attendue " + entry.sha256 + ")");
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            entry.lastAccess = System.currentTimeMillis();
+            save(entry);
+        }
+    }
+
+    // Ajoute (ou remplace) le fichier téléchargé pour cette URL ; sans validateur la revalidation
+    // serait impossible et rien n'est gardé
+    public void store(String url, ResourceInfo info, Path file, String sha256) throws IOException {
+        if (info.getEtag() == null && info.getLastModified() == null) {
+            return;
+        }
+        long size = Files.size(file);
+        if (size > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            load();
+            String key = keyFor(url);
+            Entry previous = entries.get(key);
+            if (previous != null) {
+                remove(previous);
+            }
+            Entry entry = new Entry(key, url, info.getEtag(), info.getLastModified(), size, sha256,
+                    System.currentTimeMillis(), dir.resolve(key + ".data"));
+            Path tmp = dir.resolve(key + ".data.tmp");
+            Files.deleteIfExists(tmp);
+            try {
+                Files.createLink(tmp, file);
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                // liens non pris en charge, ou cache sur un autre système de fichiers
+                Files.copy(file, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(tmp, entry.data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            save(entry);
+            entries.put(key, entry);
+            evict();
+        }
+    }
+
+    public synchronized void invalidate(String url) throws IOException {
+        load();
+        Entry entry = entries.get(keyFor(url));
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    private void evict() throws IOException {
+        long total = getTotalBytes();
+        if (total <= maxBytes) {
+            return;
+        }
+        List<Entry> byAge = new ArrayList<>(entries.values());
+        byAge.sort(Comparator.comparingLong(e -> e.lastAccess));
+        for (Entry entry : byAge) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long occupied = occupiedBytes(entry);
+            if (occupied > 0) {
+                total -= occupied;
+                remove(entry);
+            }
+        }
+    }
+
+    // Rien tant que les données restent liées au fichier livré ; la taille entière sinon,
+    // ou quand le nombre de liens n'est pas disponible
+    private static long occupiedBytes(Entry entry) {
+        try {
+            return (Integer) Files.getAttribute(entry.data, "unix:nlink") > 1 ? 0 : entry.size;
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            return entry.size;
+        }
+    }
+
+    private void remove(Entry entry) throws IOException {
+        entries.remove(entry.key);
+        Files.deleteIfExists(entry.data); // seul le lien du cache disparaît, le fichier livré reste
+        Files.deleteIfExists(dir.resolve(entry.key + ".entry"));
+    }
+
+    private void load() throws IOException {
+        if (entries != null) {
+            return;
+        }
+        Map<String, Entry> loaded = new HashMap<>();
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.entry")) {
+            for (Path file : files) {
+                String key = file.getFileName().toString().replace(".entry", "");
+                Entry entry = read(key, file);
+                if (entry == null) {
+                    // entrée illisible : oubliée avec ses données, l'URL sera téléchargée à nouveau
+                    Files.deleteIfExists(file);
+                    Files.deleteIfExists(dir.resolve(key + ".data"));
+                    continue;
+                }
+                loaded.put(key, entry);
+            }
+        }
+        entries = loaded;
+    }
+
+    // null si le fichier d'entrée est illisible ou incomplet
+    private Entry read(String key, Path file) {
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            p.load(in);
+            return new Entry(key, Objects.requireNonNull(p.getProperty("url")), p.getProperty("etag"),
+                    p.getProperty("lastModified"), Long.parseLong(p.getProperty("size")),
+                    Objects.requireNonNull(p.getProperty("sha256")), Long.parseLong(p.getProperty("lastAccess")),
+                    dir.resolve(key + ".data"));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void save(Entry entry) throws IOException {
+        Properties p = new Properties();
+        p.setProperty("url", entry.url);
+        if (entry.etag != null) {
+            p.setProperty("etag", entry.etag);
+        }
+        if (entry.lastModified != null) {
+            p.setProperty("lastModified", entry.lastModified);
+        }
+        p.setProperty("size", String.valueOf(entry.size));
+        p.setProperty("sha256", entry.sha256);
+        p.setProperty("lastAccess", String.valueOf(entry.lastAccess));
+
+        Path path = dir.resolve(entry.key + ".entry");
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            p.store(out, "cache de téléchargement");
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Nom de fichier tiré de l'URL (ou d'une autre clé), partagé avec PdfMetadataCache
+    static String keyFor(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance(StreamingDigest.ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Entry {
+        private final String key;
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final long size;
+        private final String sha256;
+        private final Path data;
+        private long lastAccess;
+
+        Entry(String key, String url, String etag, String lastModified, long size, String sha256,
+              long lastAccess, Path data) {
+            this.key = key;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.sha256 = sha256;
+            this.lastAccess = lastAccess;
+            this.data = data;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Téléchargement lancé en arrière-plan par Downloader.start()
+public class DownloadHandle {
+    private final Downloader downloader;
+    private final CompletableFuture<DownloadResult> result;
+
+    DownloadHandle(Downloader downloader, CompletableFuture<DownloadResult> result) {
+        this.downloader = downloader;
+        this.result = result;
+    }
+
+    public Downloader getDownloader() {
+        return downloader;
+    }
+
+    public CompletableFuture<DownloadResult> getResult() {
+        return result;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    public void cancel() {
+        downloader.cancel();
+    }
+
+    // Attend la fin du téléchargement, annulé ou non
+    public DownloadResult await() throws InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("téléchargement interrompu par une erreur inattendue", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package core;
+
+import java.util.concurrent.CompletableFuture;
+
+// Un téléchargement confié au DownloadManager : en file d'attente, en cours ou terminé
+public class DownloadJob {
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final long sequence;
+    private final String url;
+    private final String fileFormat;
+    private final int threads;
+    private final int maxThreads; // > 0 => concurrence adaptative
+    private final DownloadPriority priority;
+    private volatile long sizeHint = -1; // connu après la sonde HEAD du gestionnaire
+    private volatile State state = State.QUEUED;
+    private volatile Downloader downloader;
+    private volatile long rateLimit; // octets/s, 0 => illimité
+    private volatile String expectedSha256; // null => pas de vérification
+    private final CompletableFuture<DownloadResult> result = new CompletableFuture<>();
+
+    DownloadJob(long sequence, String url, String fileFormat, int threads, int maxThreads,
+                DownloadPriority priority) {
+        this.sequence = sequence;
+        this.url = url;
+        this.fileFormat = fileFormat;
+        this.threads = threads;
+        this.maxThreads = maxThreads;
+        this.priority = priority;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getFileFormat() {
+        return fileFormat;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public DownloadPriority getPriority() {
+        return priority;
+    }
+
+    public long getSizeHint() {
+        return sizeHint;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    // Complété à la fin du téléchargement, ou à son retrait de la file
+    public CompletableFuture<DownloadResult> getResult() {
+        return result;
+    }
+
+    public long getRateLimit() {
+        return rateLimit;
+    }
+
+    // Applicable avant le démarrage comme pendant le téléchargement
+    public void setRateLimit(long bytesPerSecond) {
+        this.rateLimit = bytesPerSecond;
+        Downloader d = downloader;
+        if (d != null) {
+            d.setRateLimit(bytesPerSecond);
+        }
+    }
+
+    public String getExpectedSha256() {
+        return expectedSha256;
+    }
+
+    // null tant que le téléchargement n'a pas démarré
+    public DownloadProgress getProgress() {
+        Downloader d = downloader;
+        return d == null ? null : d.getProgress();
+    }
+
+    public String getOutputFileName() {
+        Downloader d = downloader;
+        return d == null ? null : d.getOutputFileName();
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setExpectedSha256(String expectedSha256) {
+        this.expectedSha256 = expectedSha256;
+    }
+
+    void setSizeHint(long sizeHint) {
+        this.sizeHint = sizeHint;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    Downloader getDownloader() {
+        return downloader;
+    }
+
+    void setDownloader(Downloader downloader) {
+        this.downloader = downloader;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + url;
+    }
+}
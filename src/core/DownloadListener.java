@@ -0,0 +1,20 @@
+package core;
+
+// Reçoit les événements d'un téléchargement, depuis les threads du moteur :
+// une interface graphique doit repasser elle-même sur son propre thread.
+public interface DownloadListener {
+    DownloadListener NONE = message -> { };
+
+    void onLog(String message);
+
+    default void onStart(String url, long fileSize, String outputFileName) {
+    }
+
+    // PDF linéarisé : la première page et les tables de références sont écrites dans outputFileName,
+    // qui peut déjà être ouvert alors que le reste arrive
+    default void onFirstPageReady(String outputFileName) {
+    }
+
+    default void onFinish(DownloadResult result) {
+    }
+}
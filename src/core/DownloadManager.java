@@ -0,0 +1,268 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+// File de téléchargements : plusieurs fichiers en parallèle sous un plafond commun de connexions.
+// L'ordre de départ suit la priorité puis la taille (les petits fichiers d'abord) ;
+// une place supplémentaire est réservée aux fichiers prioritaires ou petits pour
+// qu'ils n'attendent pas derrière un gros téléchargement.
+public class DownloadManager implements AutoCloseable {
+    public static final int DEFAULT_MAX_CONNECTIONS = 32;
+    public static final int DEFAULT_MAX_ACTIVE = 3;
+    public static final long SMALL_FILE_BYTES = 8L * 1024 * 1024;
+    private static final int EXPRESS_SLOTS = 1;
+    private static final int PROBE_THREADS = 4;
+
+    // priorité décroissante, puis taille croissante (inconnue = à la fin), puis ordre d'arrivée
+    private static final Comparator<DownloadJob> ORDER = Comparator
+            .comparing(DownloadJob::getPriority, Comparator.reverseOrder())
+            .thenComparingLong(job -> job.getSizeHint() < 0 ? Long.MAX_VALUE : job.getSizeHint())
+            .thenComparingLong(DownloadJob::getSequence);
+
+    private final ConnectionBudget budget;
+    private final int maxActive;
+    private final DownloadListener downloadListener;
+    private final PriorityQueue<DownloadJob> queue = new PriorityQueue<>(ORDER);
+    private final List<DownloadJob> active = new ArrayList<>();
+    private final ExecutorService runners = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService probes = Executors.newFixedThreadPool(PROBE_THREADS,
+            Thread.ofVirtual().name("download-probe-", 0).factory());
+    private final LongAdder transferred = new LongAdder(); // octets reçus, tous téléchargements confondus
+    private final Transport probeTransport = TransportMode.URL_CONNECTION.create();
+    private Runnable listener = () -> { };
+    private volatile DownloadCache cache = DownloadCache.shared();
+    private volatile long smallFileSize = Downloader.DEFAULT_SMALL_FILE_SIZE;
+    private volatile boolean sizeOrdering = true;
+    private long nextSequence;
+    private boolean closed;
+
+    public DownloadManager(DownloadListener downloadListener) {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_ACTIVE, downloadListener);
+    }
+
+    // downloadListener reçoit les événements de tous les téléchargements de la file
+    public DownloadManager(int maxConnections, int maxActive, DownloadListener downloadListener) {
+        this.budget = new ConnectionBudget(maxConnections);
+        this.maxActive = Math.max(1, maxActive);
+        this.downloadListener = downloadListener;
+    }
+
+    // Appelé (hors EDT) à chaque changement d'état d'un téléchargement
+    public void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    // Cache partagé par les téléchargements de la file, null pour le désactiver
+    public void setCache(DownloadCache cache) {
+        this.cache = cache;
+    }
+
+    public DownloadCache getCache() {
+        return cache;
+    }
+
+    // Transmis à chaque téléchargement (voir Downloader.setSmallFileSize)
+    public void setSmallFileSize(long bytes) {
+        this.smallFileSize = Downloader.checkSmallFileSize(bytes);
+    }
+
+    public long getSmallFileSize() {
+        return smallFileSize;
+    }
+
+    // Sans ordre par taille, les fichiers en attente partent dans l'ordre d'arrivée et ne sont pas sondés
+    // à l'avance : une requête de moins par fichier pour une longue liste de petits fichiers
+    public void setSizeOrdering(boolean sizeOrdering) {
+        this.sizeOrdering = sizeOrdering;
+    }
+
+    public boolean isSizeOrdering() {
+        return sizeOrdering;
+    }
+
+    public ConnectionBudget getConnectionBudget() {
+        return budget;
+    }
+
+    public DownloadJob submit(String url, String fileFormat, int threads, DownloadPriority priority) {
+        return submit(url, fileFormat, threads, 0, priority);
+    }
+
+    // maxThreads > 0 => concurrence adaptative, threads servant de point de départ
+    public DownloadJob submit(String url, String fileFormat, int threads, int maxThreads,
+                              DownloadPriority priority) {
+        return submit(url, fileFormat, threads, maxThreads, priority, null);
+    }
+
+    // expectedSha256 : somme publiée du fichier, vérifiée pendant le transfert (null => aucune)
+    public synchronized DownloadJob submit(String url, String fileFormat, int threads, int maxThreads,
+                                           DownloadPriority priority, String expectedSha256) {
+        StreamingDigest.checkSha256(expectedSha256);
+        if (closed) {
+            throw new IllegalStateException("gestionnaire de téléchargements fermé");
+        }
+        // deux téléchargements simultanés d'une même URL se disputeraient son journal de reprise
+        for (DownloadJob existing : active) {
+            if (existing.getUrl().equals(url)) {
+                log("File d'attente : " + existing + " déjà en cours");
+                return existing;
+            }
+        }
+        for (DownloadJob existing : queue) {
+            if (existing.getUrl().equals(url)) {
+                log("File d'attente : " + existing + " déjà en attente");
+                return existing;
+            }
+        }
+        DownloadJob job = new DownloadJob(nextSequence++, url, fileFormat, threads, maxThreads, priority);
+        job.setExpectedSha256(expectedSha256);
+        queue.add(job);
+        log("File d'attente : " + job + " ajouté (priorité " + priority + ")");
+        if (sizeOrdering) {
+            probes.execute(() -> probe(job));
+        }
+        dispatch();
+        return job;
+    }
+
+    public synchronized void cancel(DownloadJob job) {
+        if (queue.remove(job)) {
+            job.setState(DownloadJob.State.CANCELLED);
+            job.getResult().complete(new DownloadResult(job.getUrl(), DownloadResult.Status.CANCELLED, null,
+                    job.getSizeHint(), 0, null));
+            log("File d'attente : " + job + " retiré");
+            listener.run();
+        } else if (job.getDownloader() != null) {
+            job.getDownloader().cancel();
+        }
+    }
+
+    public synchronized void cancelAll() {
+        for (DownloadJob job : new ArrayList<>(queue)) {
+            cancel(job);
+        }
+        for (DownloadJob job : active) {
+            job.getDownloader().cancel();
+        }
+    }
+
+    public synchronized List<DownloadJob> getQueued() {
+        List<DownloadJob> jobs = new ArrayList<>(queue);
+        jobs.sort(ORDER);
+        return jobs;
+    }
+
+    public synchronized List<DownloadJob> getActive() {
+        return new ArrayList<>(active);
+    }
+
+    // Total cumulé depuis la création du gestionnaire : l'échantillonner donne le débit global
+    public long getTransferredBytes() {
+        return transferred.sum();
+    }
+
+    public synchronized boolean isIdle() {
+        return queue.isEmpty() && active.isEmpty();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        cancelAll();
+        probes.shutdownNow();
+        runners.close(); // attend la fin des téléchargements annulés
+    }
+
+    // La taille sert seulement à l'ordre de départ : un échec laisse le fichier en fin de rang
+    private void probe(DownloadJob job) {
+        if (job.getState() != DownloadJob.State.QUEUED) {
+            return;
+        }
+        try {
+            long size = probeTransport.probe(job.getUrl()).getSize();
+            synchronized (this) {
+                // réinsertion : la PriorityQueue ne se réordonne pas seule
+                if (queue.remove(job)) {
+                    job.setSizeHint(size);
+                    queue.add(job);
+                    dispatch();
+                }
+            }
+        } catch (Exception e) {
+            // le Downloader signalera l'erreur au démarrage
+        }
+    }
+
+    private synchronized void dispatch() {
+        while (!closed && !queue.isEmpty()) {
+            DownloadJob next = queue.peek();
+            boolean express = next.getPriority() == DownloadPriority.HIGH
+                    || (next.getSizeHint() >= 0 && next.getSizeHint() <= SMALL_FILE_BYTES);
+            if (active.size() >= maxActive + (express ? EXPRESS_SLOTS : 0)) {
+                return;
+            }
+            queue.poll();
+            start(next);
+        }
+    }
+
+    private void start(DownloadJob job) {
+        // aucun téléchargement ne démarre plus de threads que le budget n'a de connexions
+        int threads = Math.min(job.getThreads(), budget.getCapacity());
+        Downloader downloader = new Downloader(job.getUrl(), threads, job.getFileFormat(), downloadListener);
+        downloader.setExecutionMode(ExecutionMode.VIRTUAL);
+        downloader.shareProgressWith(transferred);
+        downloader.setConnectionBudget(budget, job.getPriority().getWeight());
+        if (job.getMaxThreads() > 0) {
+            downloader.setAdaptiveConcurrency(Math.min(job.getMaxThreads(), budget.getCapacity()));
+        }
+        downloader.setRateLimit(job.getRateLimit());
+        downloader.setExpectedSha256(job.getExpectedSha256());
+        downloader.setCache(cache);
+        downloader.setSmallFileSize(smallFileSize);
+        job.setDownloader(downloader);
+        job.setState(DownloadJob.State.RUNNING);
+        active.add(job);
+        log("File d'attente : démarrage de " + job + " (" + active.size() + " actifs, " + queue.size()
+                + " en attente)");
+        listener.run();
+        runners.execute(() -> run(job));
+    }
+
+    private void run(DownloadJob job) {
+        Downloader downloader = job.getDownloader();
+        DownloadResult result = null;
+        try {
+            result = downloader.startDownload();
+        } finally {
+            job.setState(result == null ? DownloadJob.State.FAILED : switch (result.getStatus()) {
+                case COMPLETED -> DownloadJob.State.COMPLETED;
+                case CANCELLED -> DownloadJob.State.CANCELLED;
+                case FAILED -> DownloadJob.State.FAILED;
+            });
+            synchronized (this) {
+                active.remove(job);
+                log("File d'attente : " + job + " " + job.getState() + " (" + queue.size() + " en attente)");
+                dispatch();
+            }
+            listener.run();
+            if (result != null) {
+                job.getResult().complete(result);
+            } else {
+                job.getResult().completeExceptionally(new IllegalStateException("téléchargement interrompu : " + job));
+            }
+        }
+    }
+
+    private void log(String message) {
+        downloadListener.onLog(message);
+    }
+}
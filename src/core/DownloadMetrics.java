@@ -0,0 +1,225 @@
+package core;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Mesures d'un téléchargement, alimentées sans verrou par ses tâches et publiées en JMX
+// le temps du téléchargement. Le détail par plage passe par les événements JFR core.Range*.
+public class DownloadMetrics implements DownloadMetricsMXBean {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final String url;
+    private final String host;
+    private final DownloadProgress progress;
+    private final long startNanos = System.nanoTime();
+    private final long tlsConnectionsAtStart;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+    private final LongAdder stallNanos = new LongAdder();
+    private final LongAdder connectNanos = new LongAdder();
+    private final LongAdder connectCount = new LongAdder();
+    private final LongAccumulator maxConnectNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder firstByteNanos = new LongAdder();
+    private final LongAdder firstByteCount = new LongAdder();
+    private final LongAccumulator maxFirstByteNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder writeCount = new LongAdder();
+    private final LongAccumulator maxWriteNanos = new LongAccumulator(Math::max, 0);
+    private volatile int connections = 1; // requête unique ou flux, sauf setConnections
+    private volatile ConcurrencyController controller;
+    private ObjectName objectName;
+
+    // Les octets reçus sont ceux du modèle de progression, déjà compté par la boucle de lecture
+    public DownloadMetrics(String url, DownloadProgress progress) {
+        this.url = url;
+        this.progress = progress;
+        this.host = hostOf(url);
+        this.tlsConnectionsAtStart = ConnectionPool.shared().getStats(host).getNewTlsConnections();
+    }
+
+    // null pour une URL mal formée : l'échec viendra de la première requête et sera rapporté dans le résultat
+    private static String hostOf(String url) {
+        try {
+            return URI.create(url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Nombre de threads fixe : cible et connexions actives valent ce nombre
+    void setConnections(int count) {
+        connections = count;
+    }
+
+    // Concurrence adaptative : la cible et les connexions actives sont lues dans le contrôleur
+    void setController(ConcurrencyController controller) {
+        this.controller = controller;
+    }
+
+    void recordRequest(RequestTimings timings) {
+        requests.increment();
+        if (timings.getConnectNanos() >= 0) {
+            connectNanos.add(timings.getConnectNanos());
+            connectCount.increment();
+            maxConnectNanos.accumulate(timings.getConnectNanos());
+        }
+        if (timings.getFirstByteNanos() >= 0) {
+            firstByteNanos.add(timings.getFirstByteNanos());
+            firstByteCount.increment();
+            maxFirstByteNanos.accumulate(timings.getFirstByteNanos());
+        }
+    }
+
+    void recordWrite(long nanos) {
+        writeNanos.add(nanos);
+        writeCount.increment();
+        maxWriteNanos.accumulate(nanos);
+    }
+
+    void recordRetry() {
+        retries.increment();
+    }
+
+    // Silence de plus d'une seconde dans un flux ; aborted => coupé par le chien de garde
+    void recordStall(long nanos, boolean aborted) {
+        stallNanos.add(nanos);
+        if (aborted) {
+            stalls.increment();
+        }
+    }
+
+    // Publication JMX best effort : un échec n'empêche pas le téléchargement
+    void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("core:type=Download,id=" + SEQUENCE.incrementAndGet()
+                    + ",host=" + ObjectName.quote(host == null ? "" : host));
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            objectName = null;
+        }
+    }
+
+    void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // déjà retiré
+        }
+        objectName = null;
+    }
+
+    @Override
+    public String getUrl() {
+        return url;
+    }
+
+    @Override
+    public long getFileSize() {
+        return progress.getFileSize();
+    }
+
+    @Override
+    public long getBytesTransferred() {
+        return progress.getTransferredBytes();
+    }
+
+    // Moyenne depuis le début du téléchargement
+    @Override
+    public double getBytesPerSecond() {
+        long elapsed = System.nanoTime() - startNanos;
+        return elapsed <= 0 ? 0 : progress.getTransferredBytes() * 1e9 / elapsed;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    @Override
+    public long getStallTimeMillis() {
+        return stallNanos.sum() / 1_000_000;
+    }
+
+    @Override
+    public double getAverageConnectMillis() {
+        return average(connectNanos, connectCount) / 1e6;
+    }
+
+    @Override
+    public double getMaxConnectMillis() {
+        return maxConnectNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getAverageTimeToFirstByteMillis() {
+        return average(firstByteNanos, firstByteCount) / 1e6;
+    }
+
+    @Override
+    public double getMaxTimeToFirstByteMillis() {
+        return maxFirstByteNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getAverageWriteLatencyMicros() {
+        return average(writeNanos, writeCount) / 1e3;
+    }
+
+    @Override
+    public double getMaxWriteLatencyMicros() {
+        return maxWriteNanos.get() / 1e3;
+    }
+
+    // Nouvelles connexions TLS vers l'hôte depuis le début, téléchargements simultanés compris
+    @Override
+    public long getNewTlsConnections() {
+        return ConnectionPool.shared().getStats(host).getNewTlsConnections() - tlsConnectionsAtStart;
+    }
+
+    @Override
+    public int getConcurrencyTarget() {
+        ConcurrencyController c = controller;
+        return c != null ? c.getTarget() : connections;
+    }
+
+    @Override
+    public int getActiveConnections() {
+        ConcurrencyController c = controller;
+        return c != null ? c.getActive() : connections;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f Mo/s, %d requêtes, %d nouvelles tentatives, TTFB moyen %.1f ms (max %.1f), "
+                        + "connexion moyenne %.1f ms, %d blocages (%d ms), écriture moyenne %.1f µs (max %.1f)",
+                getBytesPerSecond() / (1024 * 1024), getRequests(), getRetries(),
+                getAverageTimeToFirstByteMillis(), getMaxTimeToFirstByteMillis(), getAverageConnectMillis(),
+                getStalls(), getStallTimeMillis(), getAverageWriteLatencyMicros(), getMaxWriteLatencyMicros());
+    }
+
+    private static double average(LongAdder total, LongAdder count) {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+}
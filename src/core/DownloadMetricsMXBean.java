@@ -0,0 +1,38 @@
+package core;
+
+// Vue JMX d'un téléchargement en cours (core:type=Download)
+public interface DownloadMetricsMXBean {
+    String getUrl();
+
+    long getFileSize();
+
+    long getBytesTransferred();
+
+    double getBytesPerSecond();
+
+    long getRequests();
+
+    long getRetries();
+
+    long getStalls();
+
+    long getStallTimeMillis();
+
+    double getAverageConnectMillis();
+
+    double getMaxConnectMillis();
+
+    double getAverageTimeToFirstByteMillis();
+
+    double getMaxTimeToFirstByteMillis();
+
+    double getAverageWriteLatencyMicros();
+
+    double getMaxWriteLatencyMicros();
+
+    long getNewTlsConnections();
+
+    int getConcurrencyTarget();
+
+    int getActiveConnections();
+}
@@ -0,0 +1,17 @@
+package core;
+
+public enum DownloadPriority {
+    LOW(1),
+    NORMAL(2),
+    HIGH(4); // part du budget de connexions quatre fois plus grande qu'un téléchargement LOW
+
+    private final int weight;
+
+    DownloadPriority(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+}
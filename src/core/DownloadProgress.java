@@ -0,0 +1,53 @@
+package core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Progression d'un téléchargement. La boucle de lecture l'alimente sans verrou ni allocation
+// (compteurs répartis LongAdder) ; un seul lecteur l'échantillonne à intervalle fixe.
+public class DownloadProgress {
+    private final LongAdder transferred = new LongAdder();
+    private final LongAdder aggregate; // total partagé par plusieurs téléchargements, peut être null
+    private volatile long fileSize = -1;
+    private volatile long resumedBytes;
+
+    public DownloadProgress() {
+        this(null);
+    }
+
+    DownloadProgress(LongAdder aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    void start(long fileSize, long resumedBytes) {
+        this.resumedBytes = resumedBytes;
+        this.fileSize = fileSize;
+    }
+
+    public void add(long n) {
+        transferred.add(n);
+        if (aggregate != null) {
+            aggregate.add(n);
+        }
+    }
+
+    // -1 tant que la sonde n'a pas répondu
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    // Octets reçus pendant cette exécution, reprise non comprise
+    public long getTransferredBytes() {
+        return transferred.sum();
+    }
+
+    public long getCompletedBytes() {
+        long size = fileSize;
+        long done = resumedBytes + transferred.sum();
+        return size < 0 ? done : Math.min(size, done);
+    }
+
+    public double getFraction() {
+        long size = fileSize;
+        return size <= 0 ? 0 : (double) getCompletedBytes() / size;
+    }
+}
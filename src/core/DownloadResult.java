@@ -0,0 +1,64 @@
+package core;
+
+// Bilan d'un téléchargement, renvoyé par Downloader.startDownload et par DownloadHandle
+public class DownloadResult {
+    public enum Status {
+        COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String url;
+    private final Status status;
+    private final String outputFileName; // null si l'échec précède la création du fichier
+    private final long fileSize;         // -1 si inconnue
+    private final long durationMs;
+    private final Exception failure;
+
+    public DownloadResult(String url, Status status, String outputFileName, long fileSize, long durationMs,
+                          Exception failure) {
+        this.url = url;
+        this.status = status;
+        this.outputFileName = outputFileName;
+        this.fileSize = fileSize;
+        this.durationMs = durationMs;
+        this.failure = failure;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    // Débit moyen en octets/s sur la durée totale (sonde comprise)
+    public double getThroughput() {
+        return durationMs <= 0 || fileSize <= 0 ? 0 : fileSize * 1000.0 / durationMs;
+    }
+
+    @Override
+    public String toString() {
+        return status + " " + url + (outputFileName != null ? " -> " + outputFileName : "")
+                + (failure != null ? " (" + failure.getMessage() + ")" : "");
+    }
+}
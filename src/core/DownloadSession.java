@@ -0,0 +1,43 @@
+package core;
+
+// État partagé par toutes les tâches d'un même téléchargement
+class DownloadSession {
+    final String url;
+    final Transport transport;
+    final String ifRange;           // validateur envoyé en If-Range, peut être null
+    final ChunkScheduler scheduler;
+    final OutputSink sink;
+    final RangeJournal journal;     // null => pas de reprise possible
+    final CancellationToken cancellation;
+    final RetryPolicy retryPolicy;
+    final StallWatchdog watchdog;
+    final ConnectionBudget budget;  // null => pas de plafond partagé avec d'autres téléchargements
+    final BandwidthLimiter.Throttle throttle;
+    final DownloadProgress progress;
+    final DownloadMetrics metrics;
+    final StreamingDigest digest;   // null => pas de somme de contrôle à calculer pendant le transfert
+    final DownloadListener listener;
+    volatile ConcurrencyController controller; // null => nombre de threads fixe
+
+    DownloadSession(String url, Transport transport, String ifRange, ChunkScheduler scheduler, OutputSink sink,
+                    RangeJournal journal, CancellationToken cancellation, RetryPolicy retryPolicy,
+                    StallWatchdog watchdog, ConnectionBudget budget, BandwidthLimiter.Throttle throttle,
+                    DownloadProgress progress, DownloadMetrics metrics, StreamingDigest digest,
+                    DownloadListener listener) {
+        this.url = url;
+        this.transport = transport;
+        this.ifRange = ifRange;
+        this.scheduler = scheduler;
+        this.sink = sink;
+        this.journal = journal;
+        this.cancellation = cancellation;
+        this.retryPolicy = retryPolicy;
+        this.watchdog = watchdog;
+        this.budget = budget;
+        this.throttle = throttle;
+        this.progress = progress;
+        this.metrics = metrics;
+        this.digest = digest;
+        this.listener = listener;
+    }
+}
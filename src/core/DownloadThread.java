@@ -1,62 +1,461 @@
 package core;
 
-import javax.swing.*;
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import jdk.jfr.EventType;
 
-public class DownloadThread extends Thread {
-    private final String url;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Tâche de téléchargement : pioche des blocs dans le scheduler jusqu'à épuisement.
+// Exécutée sur l'executor du Downloader (threads système ou virtuels).
+public class DownloadThread implements Runnable {
+    private static final long STALL_NANOS = 1_000_000_000; // silence compté comme blocage
+    private static final EventType WRITE_EVENT = EventType.getEventType(RangeWriteEvent.class);
+    // blocs plus petits regroupés en une requête multi-plages, dans ces limites
+    private static final long BATCH_RANGE_SIZE = ChunkScheduler.MIN_CHUNK_SIZE;
+    private static final int MAX_BATCH_RANGES = 16;
+    private static final long MAX_BATCH_BYTES = 4 * ChunkScheduler.MIN_CHUNK_SIZE;
+
+    private final DownloadSession session;
     private final int id;
-    private final int startByte;
-    private final int endByte;
-    private final JTextArea logArea;
+    private long totalDownloaded;
 
-    public DownloadThread(String url, int id, int startByte, int endByte, JTextArea logArea) {
-        this.url = url;
+    DownloadThread(DownloadSession session, int id) {
+        this.session = session;
         this.id = id;
-        this.startByte = startByte;
-        this.endByte = endByte;
-        this.logArea = logArea;
     }
 
     @Override
     public void run() {
+        CancellationToken cancellation = session.cancellation;
+        ConcurrencyController controller = session.controller;
+        int chunks = 0;
+        boolean retired = false;
         try {
-            HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-            conn.setRequestProperty("Range", "bytes=" + startByte + "-" + endByte);
-            conn.setRequestProperty("Accept-Encoding", "identity");
-
-            try (InputStream in = conn.getInputStream();
-                 FileOutputStream out = new FileOutputStream("part" + id)) {
-
-                byte[] buffer = new byte[4096];
-                int len;
-                int totalDownloaded = 0;
-                long lastUpdate = System.currentTimeMillis();
-
-                while ((len = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, len);
-                    totalDownloaded += len;
-
-                    long now = System.currentTimeMillis();
-                    if (now - lastUpdate > 1000) { // Met à jour toutes les secondes
-                        int percent = (int) ((totalDownloaded * 100L) / (endByte - startByte + 1));
-                        log("Thread " + id + " : " + percent + "% téléchargé");
-                        lastUpdate = now;
+            Chunk chunk;
+            while (!cancellation.isCancelled() && !(retired = retire()) && acquireConnection()) {
+                if ((chunk = session.scheduler.next()) == null) {
+                    releaseConnection();
+                    break;
+                }
+                List<Chunk> batch = nextBatch(chunk);
+                try {
+                    if (batch.size() > 1) {
+                        downloadBatch(batch);
+                    } else {
+                        downloadChunk(chunk);
+                    }
+                    for (Chunk c : batch) {
+                        session.scheduler.complete(c);
+                    }
+                    chunks += batch.size();
+                } catch (ResourceChangedException e) {
+                    // inutile de continuer : les plages ne viendraient plus du même fichier
+                    release(batch);
+                    cancellation.fail(e);
+                } catch (IOException e) {
+                    if (cancellation.isCancelled()) {
+                        release(batch);
+                        break;
+                    }
+                    List<Chunk> failed = new ArrayList<>();
+                    for (Chunk c : batch) {
+                        if (c.remaining() > 0) {
+                            failed.add(c);
+                        } else {
+                            session.scheduler.complete(c);
+                            chunks++;
+                        }
                     }
+                    scheduleRetry(failed, e);
+                } catch (RuntimeException e) {
+                    release(batch);
+                    throw e;
+                } finally {
+                    releaseConnection();
                 }
             }
 
-            log("Thread " + id + " terminé : octets " + startByte + "-" + endByte);
+            if (cancellation.isCancelled()) {
+                log("Thread " + id + " annulé");
+            } else {
+                log("Thread " + id + " terminé : " + chunks + " blocs, " + totalDownloaded + " octets");
+            }
 
+        } catch (InterruptedException e) {
+            log("Thread " + id + " interrompu");
         } catch (Exception e) {
+            if (controller != null) {
+                controller.recordError();
+            }
             log("Erreur dans le thread " + id + " : " + e.getMessage());
+        } finally {
+            if (controller != null && !retired) {
+                controller.workerFinished();
+            }
+        }
+    }
+
+    // Remet les blocs dans la file après un délai, découpés s'ils échouent à répétition.
+    // Un seul échec compté pour tous les blocs d'une même requête.
+    private void scheduleRetry(List<Chunk> failed, IOException cause) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        ConcurrencyController controller = session.controller;
+        boolean throttled = cause instanceof HttpStatusException && ((HttpStatusException) cause).isThrottling();
+        if (controller != null) {
+            if (throttled) {
+                controller.recordThrottled();
+            } else {
+                controller.recordError();
+            }
+        }
+        if (!session.retryPolicy.tryConsume()) {
+            release(failed);
+            session.cancellation.fail(new IOException("budget de nouvelles tentatives épuisé, dernier échec sur "
+                    + failed.get(0) + " : " + cause.getMessage(), cause));
+            log("Thread " + id + " : abandon du téléchargement, trop d'échecs");
+            return;
+        }
+        session.metrics.recordRetry();
+        for (Chunk chunk : failed) {
+            long delay = session.retryPolicy.backoffMillis(chunk.getFailures() + 1);
+            int failures = chunk.recordFailure(System.currentTimeMillis() + delay);
+            boolean split = !throttled && failures >= RetryPolicy.SPLIT_AFTER_FAILURES;
+            log("Thread " + id + " : échec sur " + chunk + " (tentative " + failures + ") : " + cause.getMessage()
+                    + ", reprise à l'octet " + chunk.getPosition() + " dans " + delay + " ms"
+                    + (split ? ", découpé en " + RetryPolicy.SPLIT_PIECES : ""));
+            session.scheduler.retry(chunk, split ? RetryPolicy.SPLIT_PIECES : 1);
+        }
+    }
+
+    private void release(List<Chunk> batch) {
+        for (Chunk chunk : batch) {
+            session.scheduler.release(chunk);
+        }
+    }
+
+    // Un petit bloc (trou laissé par une reprise, morceau d'un bloc en échec) part avec d'autres petits blocs
+    // dans une seule requête multi-plages quand le transport le permet
+    private List<Chunk> nextBatch(Chunk chunk) {
+        if (chunk.remaining() >= BATCH_RANGE_SIZE || !session.transport.acceptsMultipleRanges(session.url)) {
+            return new ArrayList<>(List.of(chunk));
+        }
+        return session.scheduler.nextBatch(chunk, MAX_BATCH_RANGES, BATCH_RANGE_SIZE, MAX_BATCH_BYTES);
+    }
+
+    // Une connexion du budget global par bloc : les autres téléchargements récupèrent
+    // leur part entre deux blocs
+    private boolean acquireConnection() throws InterruptedException {
+        return session.budget == null || session.budget.acquire(session,
+                () -> session.cancellation.isCancelled() || session.scheduler.isDrained());
+    }
+
+    private void releaseConnection() {
+        if (session.budget != null) {
+            session.budget.release(session);
+        }
+    }
+
+    private boolean retire() {
+        ConcurrencyController controller = session.controller;
+        if (controller != null && controller.shouldRetire()) {
+            log("Thread " + id + " arrêté par le contrôleur de concurrence");
+            return true;
+        }
+        return false;
+    }
+
+    private void downloadChunk(Chunk chunk) throws IOException {
+        if (chunk.isStolen()) {
+            log("Thread " + id + " reprend la fin d'un bloc en retard : " + chunk);
+        }
+        RangeJournal journal = session.journal;
+        DownloadMetrics metrics = session.metrics;
+        long from = chunk.getPosition();
+        long[] lastData = {0};   // fin du traitement du tampon précédent, 0 avant le premier
+        long[] stallNanos = {0};
+
+        RangeReadEvent readEvent = new RangeReadEvent();
+        readEvent.begin();
+        long requestStart = System.nanoTime();
+        String outcome = "error";
+        // jeton propre à la requête : le chien de garde peut la couper sans toucher aux autres
+        CancellationToken request = session.cancellation.newChild();
+        StallWatchdog.Watch watch = session.watchdog.watch(request);
+        try (RangeWriter out = session.sink.openRange(chunk.getId(), from, chunk.getEndByte())) {
+            Range range = new Range(chunk, out);
+            RequestTimings timings = session.transport.fetch(session.url, from, chunk.getEndByte(), session.ifRange,
+                    request, data -> {
+                watch.touch();
+                long arrival = System.nanoTime();
+                if (lastData[0] != 0 && arrival - lastData[0] > STALL_NANOS) {
+                    stallNanos[0] += arrival - lastData[0];
+                    metrics.recordStall(arrival - lastData[0], false);
+                }
+                int len = data.remaining();
+                int n = write(range, data, request, watch);
+                lastData[0] = System.nanoTime();
+                return n == len && chunk.remaining() > 0;
+            });
+            metrics.recordRequest(timings);
+            readEvent.timeToFirstByte = timings.getFirstByteNanos();
+            outcome = watch.isStalled() ? "stalled" : chunk.remaining() > 0 ? "interrupted" : "complete";
+        } catch (IOException e) {
+            if (watch.isStalled()) {
+                outcome = "stalled";
+                throw new IOException("aucune donnée reçue depuis " + session.watchdog.getTimeoutMs() / 1000 + " s", e);
+            }
+            outcome = request.isCancelled() ? "cancelled" : "error";
+            throw e;
+        } finally {
+            watch.close();
+            request.detach();
+            if (watch.isStalled()) {
+                long silence = System.nanoTime() - (lastData[0] != 0 ? lastData[0] : requestStart);
+                stallNanos[0] += silence;
+                metrics.recordStall(silence, true);
+            }
+            if (readEvent.shouldCommit()) {
+                readEvent.url = session.url;
+                readEvent.rangeStart = from;
+                readEvent.rangeEnd = chunk.getEndByte();
+                readEvent.bytes = chunk.getPosition() - from;
+                readEvent.stallTime = stallNanos[0];
+                readEvent.outcome = outcome;
+                readEvent.commit();
+            }
+        }
+        if (watch.isStalled()) {
+            throw new IOException("aucune donnée reçue depuis " + session.watchdog.getTimeoutMs() / 1000 + " s");
+        }
+        if (chunk.remaining() > 0) {
+            throw new IOException("flux interrompu avant la fin du " + chunk);
+        }
+        if (journal != null) {
+            journal.markCompleted(from, chunk.getEndByte());
+        }
+    }
+
+    // Plusieurs petits blocs en une requête "Range: bytes=a-b,c-d,..." : chaque partie de la réponse va dans
+    // le RangeWriter de son bloc. Si le serveur ne répond pas en multipart/byteranges, les autres blocs
+    // retournent dans la file et le premier est téléchargé seul.
+    private void downloadBatch(List<Chunk> batch) throws IOException {
+        DownloadMetrics metrics = session.metrics;
+        long[] lastData = {0};
+        long[] stallNanos = {0};
+        long requested = 0;
+        for (Chunk chunk : batch) {
+            requested += chunk.remaining();
+        }
+
+        RangeReadEvent readEvent = new RangeReadEvent();
+        readEvent.begin();
+        long requestStart = System.nanoTime();
+        String outcome = "error";
+        RequestTimings timings = null;
+        CancellationToken request = session.cancellation.newChild();
+        StallWatchdog.Watch watch = session.watchdog.watch(request);
+        try (RangeSet ranges = new RangeSet(batch)) {
+            timings = session.transport.fetchRanges(session.url, ranges.bounds(), session.ifRange, request,
+                    (position, data) -> {
+                watch.touch();
+                long arrival = System.nanoTime();
+                if (lastData[0] != 0 && arrival - lastData[0] > STALL_NANOS) {
+                    stallNanos[0] += arrival - lastData[0];
+                    metrics.recordStall(arrival - lastData[0], false);
+                }
+                Range range = ranges.at(position, data.remaining());
+                if (range != null) {
+                    data.position(data.position() + (int) (range.written - position)); // déjà écrit
+                    write(range, data, request, watch);
+                }
+                lastData[0] = System.nanoTime();
+                return true; // jusqu'à la fin de la réponse, pour garder la connexion
+            });
+            if (timings != null) {
+                metrics.recordRequest(timings);
+                readEvent.timeToFirstByte = timings.getFirstByteNanos();
+                outcome = watch.isStalled() ? "stalled" : ranges.isComplete() ? "complete" : "interrupted";
+            }
+        } catch (IOException e) {
+            if (watch.isStalled()) {
+                outcome = "stalled";
+                throw new IOException("aucune donnée reçue depuis " + session.watchdog.getTimeoutMs() / 1000 + " s", e);
+            }
+            outcome = request.isCancelled() ? "cancelled" : "error";
+            throw e;
+        } finally {
+            watch.close();
+            request.detach();
+            if (watch.isStalled()) {
+                long silence = System.nanoTime() - (lastData[0] != 0 ? lastData[0] : requestStart);
+                stallNanos[0] += silence;
+                metrics.recordStall(silence, true);
+            }
+            if (readEvent.shouldCommit() && timings != null) {
+                long remaining = 0;
+                for (Chunk chunk : batch) {
+                    remaining += chunk.remaining();
+                }
+                readEvent.url = session.url;
+                readEvent.rangeStart = batch.get(0).getStartByte();
+                readEvent.rangeEnd = batch.get(batch.size() - 1).getEndByte();
+                readEvent.bytes = requested - remaining;
+                readEvent.stallTime = stallNanos[0];
+                readEvent.outcome = outcome;
+                readEvent.commit();
+            }
+        }
+        if (timings == null) {
+            log("Thread " + id + " : plages multiples refusées par le serveur, une requête par bloc");
+            List<Chunk> others = batch.subList(1, batch.size());
+            release(others);
+            others.clear();
+            downloadChunk(batch.get(0));
+            return;
+        }
+        if (watch.isStalled()) {
+            throw new IOException("aucune donnée reçue depuis " + session.watchdog.getTimeoutMs() / 1000 + " s");
+        }
+        for (Chunk chunk : batch) {
+            if (chunk.remaining() > 0) {
+                throw new IOException("réponse multi-plages incomplète pour le " + chunk);
+            }
         }
     }
 
+    // Écrit un tampon reçu pour range : débit limité, octets cédés entre-temps à un autre thread écartés,
+    // somme de contrôle, progression et journal. Renvoie le nombre d'octets écrits.
+    private int write(Range range, ByteBuffer data, CancellationToken request, StallWatchdog.Watch watch)
+            throws IOException {
+        Chunk chunk = range.chunk;
+        int len = data.remaining();
+        session.throttle.acquire(len, request, watch::touch);
+        // La fin du bloc a pu être cédée à un autre thread entre-temps
+        int n = chunk.claim(len);
+        data.limit(data.position() + n);
+        int start = data.position(); // la somme relit les octets écrits, sans copie du tampon
+        long writeStart = System.nanoTime();
+        try {
+            if (WRITE_EVENT.isEnabled()) {
+                RangeWriteEvent writeEvent = new RangeWriteEvent();
+                writeEvent.begin();
+                range.out.write(data);
+                writeEvent.position = range.written;
+                writeEvent.bytes = n;
+                writeEvent.commit();
+            } else {
+                range.out.write(data);
+            }
+        } catch (IOException e) {
+            chunk.unclaim(n); // la reprise repartira du dernier octet réellement écrit
+            throw e;
+        }
+        session.metrics.recordWrite(System.nanoTime() - writeStart);
+        if (session.digest != null) {
+            session.digest.update(range.written, data.position(start));
+        }
+        totalDownloaded += n;
+        session.progress.add(n);
+        ConcurrencyController controller = session.controller;
+        if (controller != null) {
+            controller.recordBytes(n);
+        }
+        long before = range.written;
+        range.written += n;
+        RangeJournal journal = session.journal;
+        // bloc du journal franchi, ou fin du bloc (une requête multi-plages en termine plusieurs)
+        if (journal != null && (before / RangeJournal.BLOCK_SIZE != range.written / RangeJournal.BLOCK_SIZE
+                || chunk.remaining() == 0)) {
+            journal.markCompleted(range.from, range.written - 1);
+        }
+        return n;
+    }
 
     private void log(String msg) {
-        SwingUtilities.invokeLater(() -> logArea.append(msg + "\n"));
+        session.listener.onLog(msg);
+    }
+
+    // Un bloc en cours d'écriture par cette tâche
+    private static class Range {
+        final Chunk chunk;
+        final RangeWriter out;
+        final long from;
+        long written; // prochain octet à écrire
+
+        Range(Chunk chunk, RangeWriter out) {
+            this.chunk = chunk;
+            this.out = out;
+            this.from = chunk.getPosition();
+            this.written = from;
+        }
+    }
+
+    // Les blocs d'une requête multi-plages, triés par position, avec leurs RangeWriter ouverts
+    private class RangeSet implements AutoCloseable {
+        private final List<Range> ranges = new ArrayList<>();
+
+        RangeSet(List<Chunk> batch) throws IOException {
+            try {
+                for (Chunk chunk : batch) {
+                    ranges.add(new Range(chunk, session.sink.openRange(chunk.getId(), chunk.getPosition(),
+                            chunk.getEndByte())));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        List<long[]> bounds() {
+            List<long[]> bounds = new ArrayList<>();
+            for (Range range : ranges) {
+                bounds.add(new long[]{range.from, range.chunk.getEndByte()});
+            }
+            return bounds;
+        }
+
+        // Bloc dont le prochain octet à écrire tombe dans [position, position + length[, sinon null
+        // (octets déjà reçus, ou arrivés après un trou)
+        Range at(long position, int length) {
+            for (Range range : ranges) {
+                if (range.written >= position && range.written < position + length
+                        && range.written <= range.chunk.getEndByte()) {
+                    return range;
+                }
+            }
+            return null;
+        }
+
+        boolean isComplete() {
+            for (Range range : ranges) {
+                if (range.chunk.remaining() > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException error = null;
+            for (Range range : ranges) {
+                try {
+                    range.out.close();
+                } catch (IOException e) {
+                    if (error == null) {
+                        error = e;
+                    } else {
+                        error.addSuppressed(e);
+                    }
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        }
     }
 }
@@ -1,94 +1,800 @@
 package core;
 
-import javax.swing.*;
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Downloader {
+    // jusqu'à cette taille, plusieurs connexions coûtent plus qu'elles ne rapportent
+    public static final long DEFAULT_SMALL_FILE_SIZE = 4 * ChunkScheduler.MIN_CHUNK_SIZE;
+    // un tel fichier est gardé en mémoire jusqu'à la fin de sa requête : plafond du tas pris par téléchargement
+    public static final long MAX_SMALL_FILE_SIZE = 8 * 1024 * 1024;
+
     private final String fileURL;
     private final int numThreads;
     private final String fileFormat;
-    private final JTextArea logArea;
+    private final DownloadListener listener;
+    private final OutputMode outputMode;
     private String outputFileName;
+    private int maxThreads; // > 0 => concurrence adaptative jusqu'à maxThreads
+    private ConcurrencyController controller;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private Transport transport = TransportMode.URL_CONNECTION.create();
+    private final CancellationToken cancellation = new CancellationToken();
+    private ConnectionBudget budget; // plafond partagé avec les autres téléchargements, null => aucun
+    private int budgetWeight = DownloadPriority.NORMAL.getWeight();
+    private volatile boolean completed;
+    private final TokenBucket rateLimit = new TokenBucket(0);
+    private DownloadProgress progress = new DownloadProgress();
+    private volatile DownloadMetrics metrics;
+    private String expectedSha256; // null => pas de vérification
+    private DownloadCache cache;   // null => pas de cache
+    private boolean pdfPriority = true;
+    private long smallFileSize = DEFAULT_SMALL_FILE_SIZE;
+
 
+    public Downloader(String fileURL, int numThreads, String fileFormat, DownloadListener listener) {
+        this(fileURL, numThreads, fileFormat, OutputMode.DIRECT, listener);
+    }
 
-    public Downloader(String fileURL, int numThreads, String fileFormat, JTextArea logArea) {
+    public Downloader(String fileURL, int numThreads, String fileFormat, OutputMode outputMode,
+                      DownloadListener listener) {
         this.fileURL = fileURL;
         this.numThreads = numThreads;
         this.fileFormat = fileFormat;
-        this.logArea = logArea;
+        this.outputMode = outputMode;
+        this.listener = listener;
     }
 
-    public void startDownload() {
-        try {
-            long startTime = System.currentTimeMillis();  // ⏱ Début du chronométrage
+    // numThreads devient le point de départ, ajusté ensuite selon le débit mesuré
+    public void setAdaptiveConcurrency(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    public ConcurrencyController getConcurrencyController() {
+        return controller;
+    }
 
-            URL url = new URL(fileURL);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            int fileSize = conn.getContentLength();
-            conn.disconnect();
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
 
-            log("Taille du fichier : " + fileSize + " octets");
+    public void setTransport(TransportMode transportMode) {
+        this.transport = transportMode.create();
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    // Chaque connexion est prise dans le budget commun, au prorata du poids du téléchargement
+    public void setConnectionBudget(ConnectionBudget budget, int weight) {
+        this.budget = budget;
+        this.budgetWeight = weight;
+    }
+
+    // Limite propre à ce téléchargement en octets/s (0 => illimité), modifiable en cours de route ;
+    // les limites globale et par hôte de BandwidthLimiter s'appliquent en plus
+    public void setRateLimit(long bytesPerSecond) {
+        rateLimit.setRate(bytesPerSecond);
+    }
+
+    public long getRateLimit() {
+        return rateLimit.getRate();
+    }
+
+    // Somme SHA-256 publiée pour le fichier (64 caractères hexadécimaux), calculée pendant le transfert ;
+    // un fichier différent fait échouer le téléchargement avec une ChecksumMismatchException
+    public void setExpectedSha256(String sha256) {
+        StreamingDigest.checkSha256(sha256);
+        this.expectedSha256 = sha256 == null ? null : sha256.toLowerCase(Locale.ROOT);
+    }
+
+    public String getExpectedSha256() {
+        return expectedSha256;
+    }
+
+    // Une copie en cache encore valide (réponse 304) évite le téléchargement ;
+    // chaque fichier téléchargé y est ajouté avec sa somme SHA-256
+    public void setCache(DownloadCache cache) {
+        this.cache = cache;
+    }
+
+    public DownloadCache getCache() {
+        return cache;
+    }
+
+    // Pour un PDF linéarisé, la première page et les tables de références sont téléchargées en premier :
+    // le fichier partiel peut être ouvert avant la fin (sauf en OutputMode.PART_FILES)
+    public void setPdfPriority(boolean pdfPriority) {
+        this.pdfPriority = pdfPriority;
+    }
+
+    public boolean isPdfPriority() {
+        return pdfPriority;
+    }
+
+    // Un fichier d'au plus bytes octets arrive en une seule requête, sans sonde, découpage ni journal ;
+    // au-delà, cette première requête sert de sonde et le reste passe par les plages. 0 pour toujours sonder.
+    // Au plus MAX_SMALL_FILE_SIZE, sinon IllegalArgumentException.
+    public void setSmallFileSize(long bytes) {
+        this.smallFileSize = checkSmallFileSize(bytes);
+    }
+
+    static long checkSmallFileSize(long bytes) {
+        if (bytes > MAX_SMALL_FILE_SIZE) {
+            throw new IllegalArgumentException("seuil de requête unique trop grand : " + bytes + " octets (au plus "
+                    + MAX_SMALL_FILE_SIZE + ")");
+        }
+        return Math.max(0, bytes);
+    }
+
+    public long getSmallFileSize() {
+        return smallFileSize;
+    }
+
+    public DownloadProgress getProgress() {
+        return progress;
+    }
+
+    // null avant startDownload ; publié en JMX pendant le téléchargement
+    public DownloadMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Les octets reçus s'ajoutent aussi à ce compteur commun (total d'une file de téléchargements)
+    void shareProgressWith(LongAdder total) {
+        this.progress = new DownloadProgress(total);
+    }
+
+    public String getFileURL() {
+        return fileURL;
+    }
 
-            // Génération d'un nom unique basé sur la date/heure
-            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            outputFileName = "downloads/fichier-final_" + timeStamp + "." + fileFormat;
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    // Vrai une fois le fichier complet écrit
+    public boolean isCompleted() {
+        return completed;
+    }
 
-            int partSize = fileSize / numThreads;
-            DownloadThread[] threads = new DownloadThread[numThreads];
+    // Interrompt les tâches en cours ; startDownload rend la main une fois toutes terminées
+    public void cancel() {
+        cancellation.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancellation.isCancelled();
+    }
 
-            for (int i = 0; i < numThreads; i++) {
-                int start = i * partSize;
-                int end = (i == numThreads - 1) ? fileSize - 1 : (start + partSize - 1);
-                threads[i] = new DownloadThread(fileURL, i, start, end, logArea);
-                threads[i].start();
+    // Métadonnées du PDF distant (pages, Info ou XMP, chiffrement) lues en quelques petites requêtes,
+    // sans télécharger le corps ; gardées en cache tant que le serveur annonce le même validateur
+    public PdfMetadata peek() throws IOException {
+        ResourceInfo info = transport.probe(fileURL);
+        String validator = info.getValidator() != null ? info.getValidator() : "size-" + info.getSize();
+        PdfMetadata metadata = PdfMetadataCache.shared().get(fileURL, validator);
+        if (metadata != null) {
+            log("Aperçu PDF (cache) : " + metadata);
+            return metadata;
+        }
+        if (!info.acceptsRanges() || info.getSize() <= 0) {
+            throw new IOException("aperçu impossible : le serveur n'accepte pas les requêtes partielles");
+        }
+        PdfPeek peek = new PdfPeek(new PdfPeek.RangeSource() {
+            @Override
+            public long size() {
+                return info.getSize();
             }
 
-            for (DownloadThread thread : threads) {
+            @Override
+            public byte[] read(long position, int length) throws IOException {
+                byte[] data = new byte[length];
+                int[] filled = {0};
+                CancellationToken request = cancellation.newChild();
                 try {
-                    thread.join();
-                } catch (InterruptedException e) {
-                    log("Thread interrompu : " + e.getMessage());
+                    transport.fetch(info.getLocation(), position, position + length - 1, info.getValidator(), request,
+                            buffer -> {
+                        int n = Math.min(buffer.remaining(), length - filled[0]);
+                        buffer.get(data, filled[0], n);
+                        filled[0] += n;
+                        return filled[0] < length;
+                    });
+                } finally {
+                    request.detach();
                 }
+                return filled[0] == length ? data : Arrays.copyOf(data, filled[0]);
             }
+        });
+        metadata = peek.read();
+        log("Aperçu PDF en " + peek.getReads() + " requêtes (" + peek.getBytesRead() + " octets sur "
+                + info.getSize() + ") : " + metadata);
+        PdfMetadataCache.shared().put(fileURL, validator, metadata);
+        return metadata;
+    }
 
-            assembleParts(numThreads);
-            log("Téléchargement terminé et fichier assemblé: " + outputFileName);
+    // Lance le téléchargement sur un thread virtuel et rend la main tout de suite
+    public DownloadHandle start() {
+        CompletableFuture<DownloadResult> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("download").start(() -> {
+            try {
+                result.complete(startDownload());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return new DownloadHandle(this, result);
+    }
+
+    // Télécharge le fichier dans le thread appelant ; les erreurs sont rapportées dans le résultat
+    public DownloadResult startDownload() {
+        long startTime = System.currentTimeMillis();  // ⏱ Début du chronométrage
+        long fileSize = -1;
+        metrics = new DownloadMetrics(fileURL, progress);
+        try {
+            Files.createDirectories(Paths.get("downloads"));
+            DownloadCache.Entry cached = lookupCache();
+            // une copie en cache se revalide par une sonde conditionnelle, sans transfert
+            SmallFile small = cached == null ? fetchSmallFile() : null;
+            if (small != null && small.body != null) {
+                DownloadResult result = saveSmallFile(startTime, small);
+                if (result != null) {
+                    return result;
+                }
+            }
+            if (cancellation.isCancelled()) {
+                log("Téléchargement annulé");
+                return finish(startTime, fileSize, null);
+            }
+            ResourceInfo info = small != null ? small.info
+                    : cached != null ? transport.probe(fileURL, cached.getEtag(), cached.getLastModified())
+                    : transport.probe(fileURL);
+            if (info.isNotModified()) {
+                DownloadResult hit = restoreFromCache(startTime, cached);
+                if (hit != null) {
+                    return hit;
+                }
+                info = transport.probe(fileURL);
+            }
+            fileSize = info.getSize();
+            if (!info.getLocation().equals(fileURL)) {
+                log("Redirection vers " + info.getLocation());
+            }
+            if (!info.acceptsRanges() || fileSize <= 0) {
+                log((fileSize < 0 ? "Taille du fichier inconnue" : "Taille du fichier : " + fileSize + " octets")
+                        + (info.acceptsRanges() ? "" : ", requêtes partielles non acceptées")
+                        + " : téléchargement en un seul flux");
+                return streamDownload(startTime, info);
+            }
+
+            if (fileSize <= smallFileSize) {
+                log("Taille du fichier : " + fileSize + " octets : téléchargement en une seule requête");
+                return streamDownload(startTime, info);
+            }
+
+            log("Taille du fichier : " + fileSize + " octets");
+
+            List<long[]> ranges = List.of(new long[]{0, fileSize - 1});
+            long resumedBytes = 0;
+            RangeJournal journal = null;
+            if (outputMode != OutputMode.PART_FILES) {
+                journal = RangeJournal.load(RangeJournal.DEFAULT_DIR, fileURL);
+                if (journal != null && journal.matches(info)) {
+                    outputFileName = journal.getOutputFileName();
+                    ranges = journal.missingRanges();
+                    resumedBytes = journal.getCompletedBytes();
+                    log("Reprise : " + journal.getCompletedBytes() + " octets déjà présents dans " + outputFileName);
+                } else {
+                    if (journal != null) {
+                        log("Journal de reprise obsolète (fichier distant modifié), nouveau téléchargement");
+                        journal.delete();
+                    }
+                    outputFileName = newOutputFileName();
+                    journal = RangeJournal.create(RangeJournal.DEFAULT_DIR, fileURL, info, outputFileName);
+                }
+            } else {
+                outputFileName = newOutputFileName();
+            }
+
+            progress.start(fileSize, resumedBytes);
+            metrics.setConnections(numThreads);
+            metrics.register();
+            listener.onStart(fileURL, fileSize, outputFileName);
+            long chunkSize = ChunkScheduler.chunkSizeFor(fileSize, numThreads);
+            List<long[]> priority = priorityRanges(info);
+            // les parts séparées ne sont pas relisibles à leur position finale : somme calculée après l'assemblage
+            boolean streamDigest = needsSha256() && outputMode != OutputMode.PART_FILES;
+            String sha256 = null;
+            try (OutputSink sink = createSink(fileSize);
+                 ChunkScheduler scheduler = new ChunkScheduler(ranges, priority, chunkSize);
+                 StallWatchdog watchdog = new StallWatchdog(StallWatchdog.DEFAULT_TIMEOUT_MS);
+                 StreamingDigest digest = streamDigest
+                         ? new StreamingDigest(Paths.get(outputFileName), ranges, fileSize) : null) {
+                log("Découpage en blocs de " + chunkSize + " octets");
+                if (scheduler.hasPriorityRanges()) {
+                    String fileName = outputFileName;
+                    scheduler.setPriorityListener(() -> {
+                        log("Première page reçue : " + fileName + " peut être ouvert avant la fin du téléchargement");
+                        listener.onFirstPageReady(fileName);
+                    });
+                } else if (!priority.isEmpty()) {
+                    log("Première page déjà présente dans " + outputFileName);
+                }
+                cancellation.register(scheduler); // réveille les threads en attente d'une nouvelle tentative
+                DownloadSession session = new DownloadSession(info.getLocation(), transport, info.getValidator(),
+                        scheduler, sink, journal, cancellation, RetryPolicy.forChunks(scheduler.getChunkCount()),
+                        watchdog, budget, throttle(info), progress, metrics, digest, listener);
+                runThreads(session);
+
+                Exception failure = cancellation.getFailure();
+                if (failure instanceof ResourceChangedException) {
+                    if (journal != null) {
+                        journal.delete();
+                    }
+                    log("Erreur : " + failure.getMessage());
+                    return finish(startTime, fileSize, failure);
+                }
+                if (!scheduler.isDrained() || failure != null) {
+                    String status = failure != null ? "Échec du téléchargement (" + failure.getMessage() + ")"
+                            : cancellation.isCancelled() ? "Téléchargement annulé" : "Téléchargement incomplet";
+                    if (journal != null) {
+                        journal.flush();
+                        log(status + " : " + (fileSize - journal.getCompletedBytes()) + " octets manquants dans "
+                                + outputFileName + ", relancez le même lien pour reprendre");
+                    } else {
+                        log(status + " : " + outputFileName);
+                    }
+                    return finish(startTime, fileSize, failure != null || cancellation.isCancelled() ? failure
+                            : new IOException("téléchargement incomplet"));
+                }
+                sink.finish();
+                if (needsSha256()) {
+                    sha256 = digest != null ? digest.finish(fileSize)
+                            : StreamingDigest.hashFile(Paths.get(outputFileName));
+                }
+                if (expectedSha256 != null && sha256.equals(expectedSha256)) {
+                    log("Somme " + StreamingDigest.ALGORITHM + " vérifiée" + (digest != null
+                            ? " pendant le transfert (" + digest.getReadBackBytes() + " octets relus)" : ""));
+                }
+            }
+            // sortie et relecture de la somme fermées : le fichier peut être supprimé
+            if (expectedSha256 != null && !sha256.equals(expectedSha256)) {
+                if (journal != null) {
+                    journal.delete();
+                }
+                return rejectChecksum(startTime, fileSize, sha256);
+            }
+            if (journal != null) {
+                journal.delete();
+            }
+            completed = true;
+            log("Téléchargement terminé (" + outputMode + ", " + transport.getClass().getSimpleName() + ") : "
+                    + outputFileName);
+            storeInCache(info, sha256);
 
             long endTime = System.currentTimeMillis();  // ⏱ Fin du chronométrage
             long duration = endTime - startTime;
 
             log("[INFO] Durée totale du téléchargement : " + duration + " ms");
+            log("[INFO] Connexions vers " + URI.create(fileURL).getHost() + " : "
+                    + ConnectionPool.shared().getStats(URI.create(fileURL).getHost()));
+            return finish(startTime, fileSize, null);
 
         } catch (Exception e) {
             log("Erreur : " + e.getMessage());
+            return finish(startTime, fileSize, e);
         }
     }
 
-
-  
-    private void assembleParts(int parts) throws IOException {
-        try (BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(outputFileName))) {
-            for (int i = 0; i < parts; i++) {
-                try (BufferedInputStream bis = new BufferedInputStream(new FileInputStream("part" + i))) {
-                    byte[] buffer = new byte[4096];
-                    int len;
-                    while ((len = bis.read(buffer)) != -1) {
-                        bos.write(buffer, 0, len);
+    // Sans sonde : le début du fichier est demandé tout de suite (Transport.fetchStart) et gardé en mémoire
+    // quand c'est le fichier entier. null quand le chemin habituel doit sonder lui-même.
+    private SmallFile fetchSmallFile() throws IOException {
+        if (smallFileSize <= 0) {
+            return null;
+        }
+        SmallFile small = new SmallFile();
+        // une connexion du budget commun, comme pour streamDownload
+        if (budget != null) {
+            budget.register(small, budgetWeight);
+        }
+        try (StallWatchdog watchdog = new StallWatchdog(StallWatchdog.DEFAULT_TIMEOUT_MS)) {
+            if (budget != null && !budget.acquire(small, cancellation::isCancelled)) {
+                return null; // annulé en attente d'une connexion
+            }
+            CancellationToken request = cancellation.newChild();
+            StallWatchdog.Watch watch = watchdog.watch(request);
+            try {
+                RequestTimings timings = transport.fetchStart(fileURL, smallFileSize, request, info -> {
+                    small.info = info;
+                    long size = info.getSize();
+                    if (size < 0 || size > smallFileSize) {
+                        return null; // grand fichier ou taille inconnue : ces en-têtes tiennent lieu de sonde
                     }
+                    small.body = new byte[(int) size];
+                    outputFileName = newOutputFileName();
+                    progress.start(size, 0);
+                    metrics.register();
+                    listener.onStart(fileURL, size, outputFileName);
+                    BandwidthLimiter.Throttle throttle = throttle(info);
+                    return data -> {
+                        watch.touch();
+                        int n = Math.min(data.remaining(), small.body.length - small.received);
+                        throttle.acquire(n, request, watch::touch);
+                        data.get(small.body, small.received, n);
+                        small.received += n;
+                        progress.add(n);
+                        return small.received < small.body.length;
+                    };
+                });
+                if (timings == null) {
+                    return null;
+                }
+                metrics.recordRequest(timings);
+            } catch (IOException e) {
+                if (small.body == null) {
+                    throw e;
+                }
+                small.failure = watch.isStalled()
+                        ? "aucune donnée reçue depuis " + watchdog.getTimeoutMs() / 1000 + " s" : e.getMessage();
+            } finally {
+                watch.close();
+                request.detach();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancellation.cancel();
+            return null;
+        } finally {
+            if (budget != null) {
+                budget.release(small);
+                budget.unregister(small);
+            }
+        }
+        return small;
+    }
+
+    // Enregistre un petit fichier reçu en une requête ; null s'il est incomplet et doit être repris en flux
+    private DownloadResult saveSmallFile(long startTime, SmallFile small) throws IOException {
+        long size = small.body.length;
+        if (small.received < size) {
+            Files.deleteIfExists(Paths.get(outputFileName));
+            progress.add(-small.received);
+            if (cancellation.isCancelled()) {
+                log("Téléchargement annulé, fichier partiel supprimé : " + outputFileName);
+                return finish(startTime, size, null);
+            }
+            metrics.unregister(); // streamDownload repart de zéro
+            log("Requête unique interrompue après " + small.received + " octets sur " + size
+                    + (small.failure != null ? " (" + small.failure + ")" : "") + ", nouvelle tentative en flux");
+            return null;
+        }
+        Files.write(Paths.get(outputFileName), small.body);
+        String actual = null;
+        if (needsSha256()) {
+            try {
+                actual = HexFormat.of().formatHex(MessageDigest.getInstance(StreamingDigest.ALGORITHM)
+                        .digest(small.body));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(StreamingDigest.ALGORITHM + " indisponible", e);
+            }
+        }
+        if (expectedSha256 != null) {
+            if (!actual.equals(expectedSha256)) {
+                return rejectChecksum(startTime, size, actual);
+            }
+            log("Somme " + StreamingDigest.ALGORITHM + " vérifiée");
+        }
+        completed = true;
+        log("Téléchargement terminé (une seule requête, " + size + " octets) : " + outputFileName);
+        storeInCache(small.info, actual);
+        return finish(startTime, size, null);
+    }
+
+    // Réponse à la requête sans sonde de fetchSmallFile
+    private static class SmallFile {
+        ResourceInfo info;
+        byte[] body;     // null => fichier trop grand, non lu
+        int received;
+        String failure;  // cause d'une interruption du corps
+    }
+
+    // Un seul flux, sans journal : après un échec ou une annulation le fichier partiel est supprimé
+    private DownloadResult streamDownload(long startTime, ResourceInfo info) throws IOException {
+        long fileSize = info.getSize();
+        outputFileName = newOutputFileName();
+        progress.start(fileSize, 0);
+        metrics.register();
+        listener.onStart(fileURL, fileSize, outputFileName);
+        long received;
+        String actual = null;
+        try (OutputSink sink = new FileChannelSink(outputFileName, Math.max(0, fileSize));
+             StallWatchdog watchdog = new StallWatchdog(StallWatchdog.DEFAULT_TIMEOUT_MS)) {
+            DownloadSession session = new DownloadSession(info.getLocation(), transport, info.getValidator(), null,
+                    sink, null, cancellation, RetryPolicy.forChunks(1), watchdog, budget, throttle(info),
+                    progress, metrics, null, listener);
+            SingleStreamDownload stream = new SingleStreamDownload(session, fileSize, info.acceptsRanges(),
+                    needsSha256());
+            if (budget != null) {
+                budget.register(session, budgetWeight);
+            }
+            try {
+                if (budget != null && !budget.acquire(session, cancellation::isCancelled)) {
+                    received = -1;
+                } else {
+                    received = stream.run();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancellation.cancel();
+                received = -1;
+            } catch (IOException e) {
+                Files.deleteIfExists(Paths.get(outputFileName));
+                throw e;
+            } finally {
+                if (budget != null) {
+                    budget.release(session);
+                    budget.unregister(session);
+                }
+            }
+            if (received >= 0 && needsSha256()) {
+                actual = stream.getSha256();
+            }
+        }
+        if (received < 0) {
+            Files.deleteIfExists(Paths.get(outputFileName));
+            log("Téléchargement annulé, fichier partiel supprimé : " + outputFileName);
+            return finish(startTime, fileSize, null);
+        }
+        if (expectedSha256 != null) {
+            if (!actual.equals(expectedSha256)) {
+                return rejectChecksum(startTime, received, actual);
+            }
+            log("Somme " + StreamingDigest.ALGORITHM + " vérifiée pendant le transfert");
+        }
+        completed = true;
+        log("Téléchargement terminé (un seul flux, " + received + " octets) : " + outputFileName);
+        storeInCache(info, actual);
+        return finish(startTime, received, null);
+    }
+
+    // Lit le début du fichier pour savoir si c'est un PDF linéarisé ; vide quand l'ordre des plages est indifférent
+    private List<long[]> priorityRanges(ResourceInfo info) {
+        long fileSize = info.getSize();
+        if (!pdfPriority || outputMode == OutputMode.PART_FILES || !fileFormat.equalsIgnoreCase("pdf")
+                || fileSize < LinearizedPdf.MIN_FILE_SIZE) {
+            return List.of();
+        }
+        byte[] head = new byte[LinearizedPdf.HEAD_SIZE];
+        int[] filled = {0};
+        CancellationToken request = cancellation.newChild();
+        try {
+            transport.fetch(info.getLocation(), 0, head.length - 1, info.getValidator(), request, data -> {
+                int n = Math.min(data.remaining(), head.length - filled[0]);
+                data.get(head, filled[0], n);
+                filled[0] += n;
+                return filled[0] < head.length;
+            });
+        } catch (IOException e) {
+            log("Début du PDF illisible (" + e.getMessage() + "), plages téléchargées dans l'ordre");
+            return List.of();
+        } finally {
+            request.detach();
+        }
+        LinearizedPdf pdf = LinearizedPdf.parse(head);
+        if (pdf == null) {
+            log("PDF non linéarisé : plages téléchargées dans l'ordre");
+            return List.of();
+        }
+        if (pdf.getLength() != fileSize) {
+            // mise à jour incrémentale ajoutée après la linéarisation : les offsets ne sont plus fiables
+            log("PDF linéarisé puis modifié (" + pdf.getLength() + " octets annoncés) : plages téléchargées dans l'ordre");
+            return List.of();
+        }
+        log(pdf + " : première page et tables de références téléchargées en premier");
+        return pdf.priorityRanges();
+    }
+
+    // La somme sert à la vérification demandée et à l'entrée du cache
+    private boolean needsSha256() {
+        return expectedSha256 != null || cache != null;
+    }
+
+    // null si la copie en cache ne peut pas servir : le téléchargement a lieu normalement
+    private DownloadResult restoreFromCache(long startTime, DownloadCache.Entry cached) throws IOException {
+        if (expectedSha256 != null && !expectedSha256.equals(cached.getSha256())) {
+            log("Cache : la copie locale ne correspond pas à la somme attendue, elle est ignorée");
+            invalidateCache();
+            return null;
+        }
+        outputFileName = newOutputFileName();
+        try {
+            cache.restore(cached, Paths.get(outputFileName));
+        } catch (IOException e) {
+            log("Cache : copie locale inutilisable (" + e.getMessage() + "), nouveau téléchargement");
+            Files.deleteIfExists(Paths.get(outputFileName));
+            invalidateCache();
+            return null;
+        }
+        progress.start(cached.getSize(), cached.getSize());
+        listener.onStart(fileURL, cached.getSize(), outputFileName);
+        completed = true;
+        log("Cache : fichier inchangé sur le serveur (304), copie locale reprise : " + outputFileName);
+        return finish(startTime, cached.getSize(), null);
+    }
+
+    // Un échec du cache ne remet pas en cause le téléchargement : un cache illisible équivaut à une absence
+    private DownloadCache.Entry lookupCache() {
+        if (cache == null) {
+            return null;
+        }
+        try {
+            return cache.lookup(fileURL);
+        } catch (IOException e) {
+            log("Cache : lecture impossible (" + e.getMessage() + ")");
+            return null;
+        }
+    }
+
+    private void invalidateCache() {
+        try {
+            cache.invalidate(fileURL);
+        } catch (IOException e) {
+            log("Cache : suppression impossible (" + e.getMessage() + ")");
+        }
+    }
+
+    private void storeInCache(ResourceInfo info, String sha256) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.store(fileURL, info, Paths.get(outputFileName), sha256);
+        } catch (IOException e) {
+            log("Cache : ajout impossible (" + e.getMessage() + ")");
+        }
+    }
+
+    private BandwidthLimiter.Throttle throttle(ResourceInfo info) {
+        return BandwidthLimiter.shared().throttle(URI.create(info.getLocation()).getHost(), rateLimit);
+    }
+
+    // Données inutilisables : ni fichier ni journal ne sont gardés, relancer repart de zéro
+    private DownloadResult rejectChecksum(long startTime, long fileSize, String actual) throws IOException {
+        Files.deleteIfExists(Paths.get(outputFileName));
+        ChecksumMismatchException mismatch = new ChecksumMismatchException(StreamingDigest.ALGORITHM,
+                expectedSha256, actual);
+        log("Erreur : " + mismatch.getMessage() + ", fichier supprimé : " + outputFileName);
+        return finish(startTime, fileSize, mismatch);
+    }
+
+    private DownloadResult finish(long startTime, long fileSize, Exception failure) {
+        metrics.unregister();
+        if (metrics.getRequests() > 0) {
+            log("[INFO] Mesures : " + metrics);
+        }
+        DownloadResult.Status status = completed ? DownloadResult.Status.COMPLETED
+                : failure == null && cancellation.isCancelled() ? DownloadResult.Status.CANCELLED
+                : DownloadResult.Status.FAILED;
+        DownloadResult result = new DownloadResult(fileURL, status, outputFileName, fileSize,
+                System.currentTimeMillis() - startTime, failure);
+        listener.onFinish(result);
+        return result;
+    }
+
+    // Génération d'un nom unique basé sur la date/heure ; le fichier est créé tout de suite
+    // pour que deux téléchargements lancés dans la même seconde n'obtiennent pas le même nom
+    private String newOutputFileName() throws IOException {
+        String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        String base = "downloads/fichier-final_" + timeStamp;
+        for (int n = 1; ; n++) {
+            String name = base + (n == 1 ? "" : "_" + n) + "." + fileFormat;
+            try {
+                Files.createFile(Paths.get(name));
+                return name;
+            } catch (FileAlreadyExistsException e) {
+                // nom pris, essai suivant
+            }
+        }
+    }
+
+    private OutputSink createSink(long fileSize) throws IOException {
+        switch (outputMode) {
+            case PART_FILES:
+                return new PartFileSink(outputFileName);
+            case MAPPED:
+                return new MappedFileSink(outputFileName, fileSize);
+            default:
+                return new FileChannelSink(outputFileName, fileSize);
+        }
+    }
+
+    private void runThreads(DownloadSession session) {
+        List<Future<?>> tasks = new CopyOnWriteArrayList<>();
+        if (budget != null) {
+            budget.register(session, budgetWeight);
+        }
+        try (ExecutorService executor = createExecutor()) {
+            if (maxThreads > 0) {
+                controller = new ConcurrencyController(numThreads, 1, maxThreads,
+                        () -> startTask(executor, tasks, session), this::log);
+                session.controller = controller;
+                metrics.setController(controller);
+                log("Concurrence adaptative : " + numThreads + " connexions au départ, " + maxThreads + " au maximum");
+                controller.start();
+            } else {
+                for (int i = 0; i < numThreads; i++) {
+                    startTask(executor, tasks, session);
+                }
+            }
+
+            // la liste peut grossir pendant l'attente quand le contrôleur ajoute des tâches
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    tasks.get(i).get();
+                } catch (InterruptedException e) {
+                    log("Téléchargement interrompu : annulation des tâches");
+                    cancellation.cancel();
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    log("Erreur dans une tâche : " + e.getCause());
                 }
-                new File("part" + i).delete(); // nettoyage
+            }
+            if (controller != null) {
+                controller.stop();
+                log("Concurrence finale : " + controller.getTarget() + " connexions");
+            }
+        } finally {
+            if (budget != null) {
+                budget.unregister(session);
+            }
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(r -> new Thread(r, "download-worker-" + count.getAndIncrement()));
+    }
+
+    private void startTask(ExecutorService executor, List<Future<?>> tasks, DownloadSession session) {
+        synchronized (tasks) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            DownloadThread task = new DownloadThread(session, tasks.size());
+            try {
+                tasks.add(executor.submit(task));
+            } catch (RejectedExecutionException e) {
+                // téléchargement déjà en cours de fermeture
             }
         }
     }
 
     private void log(String message) {
-        SwingUtilities.invokeLater(() -> {
-            logArea.append("\n" + message);
-            logArea.setCaretPosition(logArea.getDocument().getLength());
-        });
+        listener.onLog(message);
     }
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package core;
+
+public enum ExecutionMode {
+    PLATFORM, // un thread système par tâche de téléchargement
+    VIRTUAL   // un thread virtuel par tâche : des centaines de plages sans coût mémoire
+}
@@ -0,0 +1,51 @@
+package core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Fichier final préalloué, écritures positionnelles sur un canal partagé
+public class FileChannelSink implements OutputSink {
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+
+    public FileChannelSink(String fileName, long fileSize) throws IOException {
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.file.setLength(fileSize);
+        this.channel = file.getChannel();
+    }
+
+    @Override
+    public RangeWriter openRange(int id, long startByte, long endByte) {
+        return new RangeWriter() {
+            private long position = startByte;
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                write(ByteBuffer.wrap(buffer, offset, length));
+            }
+
+            @Override
+            public void write(ByteBuffer data) throws IOException {
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+            }
+
+            @Override
+            public void close() {
+                // le canal est fermé par le sink
+            }
+        };
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
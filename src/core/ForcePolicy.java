@@ -0,0 +1,8 @@
+package core;
+
+// Quand forcer l'écriture sur disque des régions mappées
+public enum ForcePolicy {
+    NONE,        // laissé à l'OS
+    PER_WINDOW,  // force() à chaque fenêtre remplie
+    ON_FINISH    // un seul force() du canal à la fin
+}
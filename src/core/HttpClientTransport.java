@@ -0,0 +1,388 @@
+package core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Transport asynchrone : les corps de réponse passent par un BodySubscriber
+// vers le consumer. En HTTP/2 toutes les plages d'un hôte partagent une seule connexion.
+public class HttpClientTransport implements Transport {
+    private final HttpClient client;
+    private final ConnectionPool pool;
+    private final Set<String> singleRangeHosts = ConcurrentHashMap.newKeySet(); // refus du multi-plages
+
+    public HttpClientTransport() {
+        this(ConnectionPool.shared());
+    }
+
+    // Le client du pool est partagé : ses connexions servent aussi aux téléchargements suivants
+    public HttpClientTransport(ConnectionPool pool) {
+        this.client = pool.httpClient();
+        this.pool = pool;
+    }
+
+    // Même démarche que UrlConnectionTransport.probe : HEAD, puis requête 0-0 si nécessaire
+    @Override
+    public ResourceInfo probe(String url, String ifNoneMatch, String ifModifiedSince) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody());
+        if (ifNoneMatch != null) {
+            builder.header("If-None-Match", ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            builder.header("If-Modified-Since", ifModifiedSince);
+        }
+        HttpRequest request = builder.build();
+        try {
+            pool.recordRequest(request.uri().getHost());
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            int status = response.statusCode();
+            if (status == 304) {
+                return ResourceInfo.notModified(response.uri().toString(),
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null));
+            }
+            if (status >= 300 && status < 400) {
+                throw new HttpStatusException(status);
+            }
+            if (status < 300) {
+                String acceptRanges = response.headers().firstValue("Accept-Ranges").orElse(null);
+                ResourceInfo info = new ResourceInfo(response.uri().toString(),
+                        response.headers().firstValueAsLong("Content-Length").orElse(-1),
+                        response.headers().firstValue("ETag").orElse(null),
+                        response.headers().firstValue("Last-Modified").orElse(null),
+                        "bytes".equalsIgnoreCase(acceptRanges));
+                if (acceptRanges != null && info.getSize() >= 0) {
+                    return info;
+                }
+                url = info.getLocation();
+            }
+            return probeRange(url);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("requête interrompue", e);
+        }
+    }
+
+    private ResourceInfo probeRange(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Range", "bytes=0-0")
+                .header("Accept-Encoding", "identity")
+                .build();
+        pool.recordRequest(request.uri().getHost());
+        // flux ouvert dès les en-têtes : un corps complet (200) n'est pas lu
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        try (InputStream body = response.body()) {
+            if (status == 206) {
+                body.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        if (status != 200 && status != 206) {
+            throw new HttpStatusException(status);
+        }
+        long size = status == 206
+                ? Transport.parseContentRangeTotal(response.headers().firstValue("Content-Range").orElse(null))
+                : response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new ResourceInfo(response.uri().toString(), size,
+                response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null), status == 206);
+    }
+
+    @Override
+    public RequestTimings fetch(String url, long from, long to, String ifRange, CancellationToken cancellation,
+                      BodyConsumer consumer) throws IOException {
+        ConsumerSubscriber subscriber = new ConsumerSubscriber(consumer, to < 0 ? Long.MAX_VALUE : to - from + 1);
+        return exchange(request(url, Transport.rangeHeader(from, to), ifRange), from, to, cancellation, subscriber,
+                info -> {
+                    Transport.checkRangeStatus(url, info.statusCode(), from, ifRange);
+                    return true;
+                });
+    }
+
+    // Le HttpClient ne donne l'URL finale qu'avec la réponse terminée : le ResourceInfo garde l'URL demandée,
+    // les requêtes suivantes suivront à nouveau les redirections
+    @Override
+    public RequestTimings fetchStart(String url, long limit, CancellationToken cancellation, ResponseHandler handler)
+            throws IOException {
+        BodyConsumer[] body = new BodyConsumer[1];
+        boolean[] empty = {false};
+        // longueur connue aux en-têtes : un consumer qui s'arrête au dernier octet laisse la connexion au pool
+        ConsumerSubscriber subscriber = new ConsumerSubscriber(data -> body[0].accept(data), Long.MAX_VALUE);
+        RequestTimings timings = exchange(request(url, Transport.rangeHeader(0, limit - 1), null), 0, limit - 1,
+                cancellation, subscriber, info -> {
+                    int status = info.statusCode();
+                    if (status == 416) {
+                        empty[0] = true;
+                        return false;
+                    }
+                    if (status != 200 && status != 206) {
+                        throw new HttpStatusException(status);
+                    }
+                    HttpHeaders headers = info.headers();
+                    body[0] = handler.onResponse(new ResourceInfo(url, status == 206
+                            ? Transport.parseContentRangeTotal(headers.firstValue("Content-Range").orElse(null))
+                            : headers.firstValueAsLong("Content-Length").orElse(-1),
+                            headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null),
+                            status == 206));
+                    subscriber.expect(headers.firstValueAsLong("Content-Length").orElse(Long.MAX_VALUE));
+                    return body[0] != null;
+                });
+        return empty[0] ? null : timings;
+    }
+
+    @Override
+    public RequestTimings fetchRanges(String url, List<long[]> ranges, String ifRange, CancellationToken cancellation,
+                                      RangeConsumer consumer) throws IOException {
+        if (!acceptsMultipleRanges(url)) {
+            return null;
+        }
+        // le corps n'est interprétable qu'une fois les en-têtes connus
+        BodyConsumer[] body = new BodyConsumer[1];
+        boolean[] refused = {false};
+        // taille du corps inconnue (en-têtes des parties) : un arrêt anticipé coupe la connexion
+        ConsumerSubscriber subscriber = new ConsumerSubscriber(data -> body[0].accept(data), Long.MAX_VALUE);
+        HttpRequest request = request(url, Transport.rangesHeader(ranges), ifRange);
+        RequestTimings timings = exchange(request, ranges.get(0)[0], ranges.get(ranges.size() - 1)[1], cancellation,
+                subscriber, info -> {
+                    HttpHeaders headers = info.headers();
+                    if (Transport.multipleRangesRefused(url, info.statusCode(), ifRange,
+                            headers.firstValue("ETag").orElse(null),
+                            headers.firstValue("Last-Modified").orElse(null))) {
+                        refused[0] = true;
+                        return false;
+                    }
+                    body[0] = new ByteRangesBody(ranges, headers.firstValue("Content-Type").orElse(null),
+                            headers.firstValue("Content-Range").orElse(null), consumer);
+                    return true;
+                });
+        if (refused[0]) {
+            singleRangeHosts.add(request.uri().getHost());
+            return null;
+        }
+        return timings;
+    }
+
+    @Override
+    public boolean acceptsMultipleRanges(String url) {
+        return !singleRangeHosts.contains(URI.create(url).getHost());
+    }
+
+    private static HttpRequest request(String url, String range, String ifRange) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Accept-Encoding", "identity");
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        if (ifRange != null) {
+            builder.header("If-Range", ifRange);
+        }
+        return builder.build();
+    }
+
+    // Envoie la requête et attend la fin du corps ; check examine la réponse avant le corps
+    // et renvoie faux quand le corps n'est pas à lire
+    private RequestTimings exchange(HttpRequest request, long from, long to, CancellationToken cancellation,
+                                    ConsumerSubscriber subscriber, ResponseCheck check) throws IOException {
+        pool.recordRequest(request.uri().getHost());
+        RangeConnectEvent event = new RangeConnectEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long[] firstByte = {-1};
+        CompletableFuture<HttpResponse<Void>> future = client.sendAsync(request, info -> {
+            firstByte[0] = System.nanoTime() - start;
+            if (event.shouldCommit()) {
+                event.host = request.uri().getHost();
+                event.rangeStart = from;
+                event.rangeEnd = to;
+                event.status = info.statusCode();
+                event.connectTime = -1; // le HttpClient ne distingue pas la connexion de l'attente
+                event.commit();
+            }
+            try {
+                if (!check.accept(info)) {
+                    subscriber.skip();
+                }
+            } catch (IOException e) {
+                subscriber.fail(e);
+            }
+            return subscriber;
+        });
+
+        AutoCloseable abort = () -> {
+            subscriber.cancel();
+            future.cancel(true);
+        };
+        cancellation.register(abort);
+        try {
+            future.get(); // en-têtes reçus, le corps arrive dans le subscriber
+            subscriber.drain();
+            subscriber.checkError();
+            return new RequestTimings(-1, firstByte[0]);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("requête interrompue", e);
+        } catch (CancellationException e) {
+            throw new IOException("requête annulée", e);
+        } catch (ExecutionException e) {
+            subscriber.checkError();
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } finally {
+            subscriber.cancel(); // sans effet une fois le corps reçu en entier
+            cancellation.unregister(abort);
+        }
+    }
+
+    private interface ResponseCheck {
+        boolean accept(HttpResponse.ResponseInfo info) throws IOException;
+    }
+
+    // Passe chaque tampon reçu au consumer sur le thread qui attend la réponse : écriture et limite de débit
+    // n'occupent jamais les threads du client, et l'élément suivant n'est demandé qu'une fois le précédent traité.
+    // Le corps est considéré comme terminé dès que le consumer s'arrête, sans attendre la fin du flux.
+    private static class ConsumerSubscriber implements HttpResponse.BodySubscriber<Void> {
+        private static final List<ByteBuffer> END = new ArrayList<>(); // marqueur de fin, comparé par identité
+
+        private final BodyConsumer consumer;
+        private volatile long expected;
+        private final BlockingQueue<List<ByteBuffer>> received = new LinkedBlockingQueue<>();
+        private long count;
+        private boolean done; // consumer arrêté en fin de corps : la suite du flux est lue et ignorée
+        private volatile Flow.Subscription subscription;
+        private volatile IOException error;
+        private volatile boolean stopped;
+
+        ConsumerSubscriber(BodyConsumer consumer, long expected) {
+            this.consumer = consumer;
+            this.expected = expected;
+        }
+
+        // Longueur du corps, quand elle n'est connue qu'avec les en-têtes
+        void expect(long expected) {
+            this.expected = expected;
+        }
+
+        // Réponse disponible dès les en-têtes, le corps est lu par drain
+        @Override
+        public CompletableFuture<Void> getBody() {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (stopped) {
+                subscription.cancel();
+                received.add(END);
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            received.add(buffers);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (error == null && !stopped) {
+                error = throwable instanceof IOException ? (IOException) throwable : new IOException(throwable);
+            }
+            received.add(END);
+        }
+
+        @Override
+        public void onComplete() {
+            received.add(END);
+        }
+
+        // Traite les tampons jusqu'à la fin du corps ou l'arrêt de la requête
+        void drain() throws IOException {
+            try {
+                List<ByteBuffer> buffers;
+                while ((buffers = received.take()) != END) {
+                    if (!deliver(buffers)) {
+                        return;
+                    }
+                    subscription.request(1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("requête interrompue");
+            }
+        }
+
+        // false quand le flux a été coupé
+        private boolean deliver(List<ByteBuffer> buffers) {
+            if (stopped) {
+                return false;
+            }
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    if (done) {
+                        return true;
+                    }
+                    count += buffer.remaining();
+                    if (!consumer.accept(buffer)) {
+                        if (count < expected) {
+                            cancel(); // sinon la réponse se termine normalement, connexion conservée
+                            return false;
+                        }
+                        done = true;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                error = e;
+                cancel();
+                return false;
+            }
+        }
+
+        void cancel() {
+            stopped = true;
+            Flow.Subscription s = subscription;
+            if (s != null) {
+                s.cancel();
+            }
+            received.add(END);
+        }
+
+        // Réponse refusée avant le corps : on coupe le flux dès l'abonnement
+        void fail(IOException e) {
+            error = e;
+            stopped = true;
+        }
+
+        // Corps inutile, sans erreur
+        void skip() {
+            stopped = true;
+        }
+
+        void checkError() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+}
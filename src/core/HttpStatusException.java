@@ -0,0 +1,27 @@
+package core;
+
+import java.io.IOException;
+
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private final int status;
+
+    public HttpStatusException(int status) {
+        super("réponse HTTP " + status);
+        this.status = status;
+    }
+
+    public HttpStatusException(int status, String message) {
+        super(message + " (HTTP " + status + ")");
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    // 429 Too Many Requests / 503 Service Unavailable
+    public boolean isThrottling() {
+        return status == 429 || status == 503;
+    }
+}
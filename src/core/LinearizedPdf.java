@@ -0,0 +1,102 @@
+package core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Dictionnaire de linéarisation d'un PDF (ISO 32000-1, annexe F), lu dans les premiers octets du fichier.
+// Un PDF linéarisé commence par tout ce qu'il faut pour afficher la première page : table de références
+// de la première page, catalogue, tables d'indices puis objets de la page, jusqu'à l'octet /E.
+// La table de références principale (/T) et le trailer final sont en fin de fichier.
+public class LinearizedPdf {
+    // le dictionnaire doit se trouver dans le premier kilo-octet
+    public static final int HEAD_SIZE = 1024;
+    // en dessous, le fichier arrive assez vite pour que l'ordre des plages ne change rien
+    public static final long MIN_FILE_SIZE = 4 * 1024 * 1024;
+
+    private static final Pattern HINT = Pattern.compile("/H\\s*\\[\\s*(\\d{1,18})\\s+(\\d{1,18})\\b");
+
+    private final long length;
+    private final long firstPageEnd;
+    private final long hintOffset;
+    private final long hintLength;
+    private final long mainXrefOffset;
+    private final int pageCount;
+
+    private LinearizedPdf(long length, long firstPageEnd, long hintOffset, long hintLength, long mainXrefOffset,
+                          int pageCount) {
+        this.length = length;
+        this.firstPageEnd = firstPageEnd;
+        this.hintOffset = hintOffset;
+        this.hintLength = hintLength;
+        this.mainXrefOffset = mainXrefOffset;
+        this.pageCount = pageCount;
+    }
+
+    // null si le début du fichier ne contient pas de dictionnaire de linéarisation complet et cohérent
+    public static LinearizedPdf parse(byte[] head) {
+        String text = new String(head, StandardCharsets.ISO_8859_1);
+        if (!text.startsWith("%PDF-")) {
+            return null;
+        }
+        int key = text.indexOf("/Linearized");
+        int open = key < 0 ? -1 : text.lastIndexOf("<<", key);
+        int close = key < 0 ? -1 : text.indexOf(">>", key);
+        if (open < 0 || close < 0) {
+            return null;
+        }
+        String dict = text.substring(open + 2, close);
+        long length = number(dict, "L");
+        long firstPageEnd = number(dict, "E");
+        long mainXrefOffset = number(dict, "T");
+        long pageCount = number(dict, "N");
+        Matcher hint = HINT.matcher(dict);
+        if (length <= 0 || firstPageEnd <= 0 || mainXrefOffset <= 0 || pageCount <= 0 || !hint.find()) {
+            return null;
+        }
+        long hintOffset = Long.parseLong(hint.group(1));
+        long hintLength = Long.parseLong(hint.group(2));
+        if (firstPageEnd > length || mainXrefOffset >= length || hintOffset + hintLength > length) {
+            return null;
+        }
+        return new LinearizedPdf(length, firstPageEnd, hintOffset, hintLength, mainXrefOffset, (int) pageCount);
+    }
+
+    // Taille annoncée (/L) ; différente de la taille réelle quand le fichier a été modifié après linéarisation
+    public long getLength() {
+        return length;
+    }
+
+    public long getFirstPageEnd() {
+        return firstPageEnd;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    // Plages [début, fin] à recevoir avant le reste pour que la première page s'affiche :
+    // la section de la première page, les tables d'indices si elles n'y sont pas, la table principale et le trailer
+    public List<long[]> priorityRanges() {
+        List<long[]> ranges = new ArrayList<>();
+        ranges.add(new long[]{0, firstPageEnd - 1});
+        if (hintLength > 0 && hintOffset + hintLength > firstPageEnd) {
+            ranges.add(new long[]{hintOffset, hintOffset + hintLength - 1});
+        }
+        ranges.add(new long[]{mainXrefOffset, length - 1});
+        return ranges;
+    }
+
+    @Override
+    public String toString() {
+        return "PDF linéarisé, " + pageCount + " pages, première page sur " + firstPageEnd + " octets";
+    }
+
+    // -1 si la clé manque
+    private static long number(String dict, String name) {
+        Matcher m = Pattern.compile("/" + name + "\\s+(\\d{1,18})\\b").matcher(dict);
+        return m.find() ? Long.parseLong(m.group(1)) : -1;
+    }
+}
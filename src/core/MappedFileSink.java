@@ -0,0 +1,105 @@
+package core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Copie les octets directement dans des régions mappées du fichier final.
+// Au-delà de mappingLimit, chaque plage est parcourue par fenêtres de windowSize.
+public class MappedFileSink implements OutputSink {
+    public static final long DEFAULT_MAPPING_LIMIT = 1L << 30;   // 1 Go
+    public static final long DEFAULT_WINDOW_SIZE = 64L << 20;    // 64 Mo
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long windowSize;
+    private final ForcePolicy forcePolicy;
+
+    public MappedFileSink(String fileName, long fileSize) throws IOException {
+        this(fileName, fileSize, DEFAULT_MAPPING_LIMIT, DEFAULT_WINDOW_SIZE, ForcePolicy.ON_FINISH);
+    }
+
+    public MappedFileSink(String fileName, long fileSize, long mappingLimit, long windowSize,
+                          ForcePolicy forcePolicy) throws IOException {
+        this.file = new RandomAccessFile(fileName, "rw");
+        this.file.setLength(fileSize);
+        this.channel = file.getChannel();
+        // Une seule région par plage tant que le fichier tient sous la limite
+        this.windowSize = Math.min(fileSize <= mappingLimit ? fileSize : windowSize, Integer.MAX_VALUE);
+        this.forcePolicy = forcePolicy;
+    }
+
+    @Override
+    public RangeWriter openRange(int id, long startByte, long endByte) {
+        return new RangeWriter() {
+            private long windowStart = startByte;
+            private MappedByteBuffer window;
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                while (length > 0) {
+                    if (window == null || !window.hasRemaining()) {
+                        nextWindow();
+                    }
+                    int n = Math.min(length, window.remaining());
+                    window.put(buffer, offset, n);
+                    offset += n;
+                    length -= n;
+                }
+            }
+
+            @Override
+            public void write(ByteBuffer data) throws IOException {
+                while (data.hasRemaining()) {
+                    if (window == null || !window.hasRemaining()) {
+                        nextWindow();
+                    }
+                    int n = Math.min(data.remaining(), window.remaining());
+                    window.put(window.position(), data, data.position(), n);
+                    window.position(window.position() + n);
+                    data.position(data.position() + n);
+                }
+            }
+
+            private void nextWindow() throws IOException {
+                if (window != null) {
+                    releaseWindow();
+                }
+                long size = Math.min(windowSize, endByte - windowStart + 1);
+                if (size <= 0) {
+                    throw new IOException("Écriture au-delà de la plage " + startByte + "-" + endByte);
+                }
+                window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, size);
+                windowStart += size;
+            }
+
+            private void releaseWindow() {
+                if (forcePolicy == ForcePolicy.PER_WINDOW) {
+                    window.force();
+                }
+                window = null;
+            }
+
+            @Override
+            public void close() {
+                if (window != null) {
+                    releaseWindow();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (forcePolicy == ForcePolicy.ON_FINISH) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,7 @@
+package core;
+
+public enum OutputMode {
+    PART_FILES, // un fichier part<id> par thread puis assemblage
+    DIRECT,     // fichier final préalloué, écritures positionnelles
+    MAPPED      // fichier final préalloué, écritures dans des régions mappées
+}
@@ -0,0 +1,13 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Destination des octets téléchargés : chaque plage ouvre son propre writer
+public interface OutputSink extends Closeable {
+
+    RangeWriter openRange(int id, long startByte, long endByte) throws IOException;
+
+    // Appelé une fois tous les threads terminés (assemblage, force sur disque...)
+    void finish() throws IOException;
+}
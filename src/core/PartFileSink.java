@@ -0,0 +1,74 @@
+package core;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Mode historique : un fichier part<id> par plage, assemblés à la fin
+public class PartFileSink implements OutputSink {
+    private final String outputFileName;
+    private final Map<Long, String> parts = new TreeMap<>(); // offset de départ -> fichier
+
+    public PartFileSink(String outputFileName) {
+        this.outputFileName = outputFileName;
+    }
+
+    @Override
+    public RangeWriter openRange(int id, long startByte, long endByte) throws IOException {
+        String partName = "part" + id + "_" + startByte;
+        synchronized (parts) {
+            parts.put(startByte, partName);
+        }
+        FileChannel out = FileChannel.open(Paths.get(partName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new RangeWriter() {
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                write(ByteBuffer.wrap(buffer, offset, length));
+            }
+
+            @Override
+            public void write(ByteBuffer data) throws IOException {
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                out.close();
+            }
+        };
+    }
+
+    @Override
+    public void finish() throws IOException {
+        assembleParts();
+    }
+
+    // transferTo laisse le noyau recopier les parties, sans passer par la mémoire de la JVM
+    private void assembleParts() throws IOException {
+        try (FileChannel out = FileChannel.open(Paths.get(outputFileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            synchronized (parts) {
+                for (String partName : parts.values()) {
+                    try (FileChannel in = FileChannel.open(Paths.get(partName), StandardOpenOption.READ)) {
+                        long size = in.size();
+                        for (long position = 0; position < size; ) {
+                            position += in.transferTo(position, size - position, out);
+                        }
+                    }
+                    new File(partName).delete(); // nettoyage
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,112 @@
+package core;
+
+import java.util.Properties;
+
+// Ce qu'on sait d'un PDF sans l'avoir lu en entier : nombre de pages, dictionnaire Info (ou XMP)
+// et chiffrement. Les champs absents du document valent null (-1 pour le nombre de pages).
+public class PdfMetadata {
+    // bits de /P (ISO 32000-1, tableau 22), numérotés à partir de 1
+    private static final int PRINT = 1 << 2;
+    private static final int MODIFY = 1 << 3;
+    private static final int COPY = 1 << 4;
+
+    private final int pageCount;
+    private final String title;
+    private final String author;
+    private final String producer;
+    private final String encryption; // null => document non chiffré
+    private final int permissions;
+
+    public PdfMetadata(int pageCount, String title, String author, String producer, String encryption,
+                       int permissions) {
+        this.pageCount = pageCount;
+        this.title = title;
+        this.author = author;
+        this.producer = producer;
+        this.encryption = encryption;
+        this.permissions = permissions;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getProducer() {
+        return producer;
+    }
+
+    public boolean isEncrypted() {
+        return encryption != null;
+    }
+
+    // Gestionnaire de sécurité et versions, par exemple "Standard V4 R4"
+    public String getEncryption() {
+        return encryption;
+    }
+
+    // Valeur de /P du dictionnaire de chiffrement ; -1 (tout permis) sans chiffrement
+    public int getPermissions() {
+        return permissions;
+    }
+
+    public boolean canPrint() {
+        return (permissions & PRINT) != 0;
+    }
+
+    public boolean canModify() {
+        return (permissions & MODIFY) != 0;
+    }
+
+    public boolean canCopy() {
+        return (permissions & COPY) != 0;
+    }
+
+    void store(Properties p) {
+        p.setProperty("pages", String.valueOf(pageCount));
+        p.setProperty("permissions", String.valueOf(permissions));
+        put(p, "title", title);
+        put(p, "author", author);
+        put(p, "producer", producer);
+        put(p, "encryption", encryption);
+    }
+
+    static PdfMetadata load(Properties p) {
+        return new PdfMetadata(Integer.parseInt(p.getProperty("pages")), p.getProperty("title"),
+                p.getProperty("author"), p.getProperty("producer"), p.getProperty("encryption"),
+                Integer.parseInt(p.getProperty("permissions")));
+    }
+
+    private static void put(Properties p, String key, String value) {
+        if (value != null) {
+            p.setProperty(key, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder(pageCount < 0 ? "pages inconnues"
+                : pageCount + (pageCount == 1 ? " page" : " pages"));
+        if (title != null) {
+            s.append(", « ").append(title).append(" »");
+        }
+        if (author != null) {
+            s.append(", auteur ").append(author);
+        }
+        if (producer != null) {
+            s.append(", produit par ").append(producer);
+        }
+        if (encryption != null) {
+            s.append(", chiffré (").append(encryption).append(canPrint() ? "" : ", impression interdite")
+                    .append(canCopy() ? "" : ", copie interdite").append(')');
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,107 @@
+package core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Métadonnées PDF déjà lues, par URL ou par fichier local, en mémoire et sur disque (un fichier .properties
+// par clé). Chaque entrée garde un validateur : ETag ou Last-Modified pour une URL, taille et date de
+// modification pour un fichier ; un validateur différent rend l'entrée obsolète.
+public class PdfMetadataCache {
+    public static final Path DEFAULT_DIR = Paths.get("downloads", ".cache", "pdf");
+
+    private static final PdfMetadataCache SHARED = new PdfMetadataCache(DEFAULT_DIR);
+
+    private final Path dir;
+    private final Map<String, Entry> memory = new ConcurrentHashMap<>();
+
+    public PdfMetadataCache(Path dir) {
+        this.dir = dir;
+    }
+
+    public static PdfMetadataCache shared() {
+        return SHARED;
+    }
+
+    // null si la clé est inconnue ou si le validateur a changé
+    public PdfMetadata get(String key, String validator) throws IOException {
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = load(key);
+            if (entry != null) {
+                memory.put(key, entry);
+            }
+        }
+        return entry != null && entry.validator.equals(validator) ? entry.metadata : null;
+    }
+
+    public void put(String key, String validator, PdfMetadata metadata) throws IOException {
+        memory.put(key, new Entry(validator, metadata));
+        Properties p = new Properties();
+        p.setProperty("key", key);
+        p.setProperty("validator", validator);
+        metadata.store(p);
+        Files.createDirectories(dir);
+        Path path = pathFor(key);
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            p.store(out, "métadonnées PDF");
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Métadonnées d'un fichier local, lues dans le fichier (quelques petites plages) la première fois seulement
+    public PdfMetadata forFile(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String key = file.toAbsolutePath().normalize().toString();
+        String validator = attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+        PdfMetadata metadata = get(key, validator);
+        if (metadata == null) {
+            metadata = PdfPeek.readFile(file);
+            put(key, validator, metadata);
+        }
+        return metadata;
+    }
+
+    private Entry load(String key) throws IOException {
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(pathFor(key), StandardCharsets.UTF_8)) {
+            p.load(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // clé d'un autre fichier, ou entrée tronquée sans validateur
+        if (!key.equals(p.getProperty("key")) || p.getProperty("validator") == null) {
+            return null;
+        }
+        try {
+            return new Entry(p.getProperty("validator"), PdfMetadata.load(p));
+        } catch (RuntimeException e) {
+            return null; // entrée illisible : relue à la source
+        }
+    }
+
+    private Path pathFor(String key) {
+        return dir.resolve(DownloadCache.keyFor(key) + ".properties");
+    }
+
+    private static class Entry {
+        final String validator;
+        final PdfMetadata metadata;
+
+        Entry(String validator, PdfMetadata metadata) {
+            this.validator = validator;
+            this.metadata = metadata;
+        }
+    }
+}
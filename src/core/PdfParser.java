@@ -0,0 +1,362 @@
+package core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lecture des objets PDF (ISO 32000-1, 7.3) dans un extrait du fichier.
+// Dictionnaires -> Map (clés sans "/"), tableaux -> List, noms -> String, chaînes -> byte[],
+// nombres -> Long ou Double, références "n g R" -> Ref, null -> null.
+// Un extrait trop court pour l'objet demandé donne une EOFException : l'appelant relit plus large.
+class PdfParser {
+    private final byte[] data;
+    private int position;
+
+    PdfParser(byte[] data, int position) {
+        this.data = data;
+        this.position = position;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    Object next() throws IOException {
+        skipSpace();
+        int c = peek();
+        switch (c) {
+            case '/':
+                position++;
+                return name();
+            case '(':
+                position++;
+                return literalString();
+            case '[':
+                position++;
+                return array();
+            case '<':
+                if (at(position + 1) == '<') {
+                    position += 2;
+                    return dictionary();
+                }
+                position++;
+                return hexString();
+            default:
+                if (c == '+' || c == '-' || c == '.' || isDigit(c)) {
+                    return numberOrRef();
+                }
+                String keyword = keyword();
+                switch (keyword) {
+                    case "true":
+                        return Boolean.TRUE;
+                    case "false":
+                        return Boolean.FALSE;
+                    case "null":
+                        return null;
+                    default:
+                        throw new IOException("PDF invalide : « " + keyword + " » inattendu à l'octet " + position);
+                }
+        }
+    }
+
+    // En-tête "n g obj" d'un objet indirect ; renvoie n
+    long objectHeader() throws IOException {
+        long number = integer();
+        integer();
+        expectKeyword("obj");
+        return number;
+    }
+
+    // Saute le mot-clé "stream" et sa fin de ligne : position sur le premier octet des données
+    boolean streamStart() throws IOException {
+        skipSpace();
+        if (!keywordAhead("stream")) {
+            return false;
+        }
+        position += 6;
+        if (peek() == '\r') {
+            position++;
+        }
+        if (peek() == '\n') {
+            position++;
+        }
+        return true;
+    }
+
+    long integer() throws IOException {
+        skipSpace();
+        int start = position;
+        if (peek() == '+' || peek() == '-') {
+            position++;
+        }
+        while (isDigit(peek())) {
+            position++;
+        }
+        if (position == start) {
+            throw new IOException("PDF invalide : entier attendu à l'octet " + start);
+        }
+        return Long.parseLong(text(start, position));
+    }
+
+    void expectKeyword(String keyword) throws IOException {
+        skipSpace();
+        String found = keyword();
+        if (!found.equals(keyword)) {
+            throw new IOException("PDF invalide : « " + keyword + " » attendu, « " + found + " » trouvé");
+        }
+    }
+
+    boolean keywordAhead(String keyword) throws IOException {
+        skipSpace();
+        for (int i = 0; i < keyword.length(); i++) {
+            if (at(position + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        int after = position + keyword.length();
+        return after >= data.length || isDelimiter(data[after] & 0xff) || isSpace(data[after] & 0xff);
+    }
+
+    void skipSpace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == '%') {
+                while (position < data.length && data[position] != '\n' && data[position] != '\r') {
+                    position++;
+                }
+            } else if (isSpace(c)) {
+                position++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Object numberOrRef() throws IOException {
+        Object number = number();
+        if (number instanceof Long && (Long) number >= 0) {
+            int afterFirst = position;
+            skipSpace();
+            if (isDigit(peek())) {
+                long generation = integer();
+                if (keywordAhead("R")) {
+                    position++;
+                    return new Ref((Long) number, (int) generation);
+                }
+            }
+            position = afterFirst;
+        }
+        return number;
+    }
+
+    private Object number() throws IOException {
+        int start = position;
+        if (peek() == '+' || peek() == '-') {
+            position++;
+        }
+        boolean real = false;
+        while (isDigit(peek()) || peek() == '.') {
+            real |= data[position] == '.';
+            position++;
+        }
+        String text = text(start, position);
+        try {
+            return real ? (Object) Double.parseDouble(text) : (Object) Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IOException("PDF invalide : nombre « " + text + " »");
+        }
+    }
+
+    private String name() throws IOException {
+        StringBuilder name = new StringBuilder();
+        while (true) {
+            int c = position < data.length ? data[position] & 0xff : -1;
+            if (c < 0) {
+                throw new EOFException();
+            }
+            if (isSpace(c) || isDelimiter(c)) {
+                return name.toString();
+            }
+            if (c == '#' && position + 2 < data.length && Character.digit(data[position + 1], 16) >= 0
+                    && Character.digit(data[position + 2], 16) >= 0) {
+                name.append((char) Integer.parseInt(text(position + 1, position + 3), 16));
+                position += 3;
+            } else {
+                name.append((char) c);
+                position++;
+            }
+        }
+    }
+
+    private byte[] literalString() throws IOException {
+        StringBuilder out = new StringBuilder();
+        int depth = 1;
+        while (true) {
+            int c = next1();
+            if (c == '\\') {
+                int e = next1();
+                switch (e) {
+                    case 'n' -> out.append('\n');
+                    case 'r' -> out.append('\r');
+                    case 't' -> out.append('\t');
+                    case 'b' -> out.append('\b');
+                    case 'f' -> out.append('\f');
+                    case '\r' -> {
+                        if (peek() == '\n') {
+                            position++;
+                        }
+                    }
+                    case '\n' -> { } // continuation de ligne
+                    default -> {
+                        if (e >= '0' && e <= '7') {
+                            int octal = e - '0';
+                            for (int i = 0; i < 2 && peek() >= '0' && peek() <= '7'; i++) {
+                                octal = octal * 8 + next1() - '0';
+                            }
+                            out.append((char) (octal & 0xff));
+                        } else {
+                            out.append((char) e);
+                        }
+                    }
+                }
+            } else if (c == '(') {
+                depth++;
+                out.append('(');
+            } else if (c == ')') {
+                if (--depth == 0) {
+                    return out.toString().getBytes(StandardCharsets.ISO_8859_1);
+                }
+                out.append(')');
+            } else {
+                out.append((char) c);
+            }
+        }
+    }
+
+    private byte[] hexString() throws IOException {
+        StringBuilder hex = new StringBuilder();
+        int c;
+        while ((c = next1()) != '>') {
+            if (Character.digit(c, 16) >= 0) {
+                hex.append((char) c);
+            }
+        }
+        if (hex.length() % 2 != 0) {
+            hex.append('0');
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private List<Object> array() throws IOException {
+        List<Object> list = new ArrayList<>();
+        while (true) {
+            skipSpace();
+            if (peek() == ']') {
+                position++;
+                return list;
+            }
+            list.add(next());
+        }
+    }
+
+    private Map<String, Object> dictionary() throws IOException {
+        Map<String, Object> dict = new LinkedHashMap<>();
+        while (true) {
+            skipSpace();
+            if (peek() == '>' && at(position + 1) == '>') {
+                position += 2;
+                return dict;
+            }
+            if (peek() != '/') {
+                throw new IOException("PDF invalide : nom attendu dans un dictionnaire à l'octet " + position);
+            }
+            position++;
+            String key = name();
+            dict.put(key, next());
+        }
+    }
+
+    private String keyword() throws IOException {
+        int start = position;
+        while (position < data.length && !isSpace(data[position] & 0xff) && !isDelimiter(data[position] & 0xff)) {
+            position++;
+        }
+        if (position == data.length && start == position) {
+            throw new EOFException();
+        }
+        return text(start, position);
+    }
+
+    private int peek() throws EOFException {
+        if (position >= data.length) {
+            throw new EOFException();
+        }
+        return data[position] & 0xff;
+    }
+
+    private int next1() throws EOFException {
+        int c = peek();
+        position++;
+        return c;
+    }
+
+    private int at(int index) {
+        return index < data.length ? data[index] & 0xff : -1;
+    }
+
+    private String text(int from, int to) {
+        return new String(data, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0;
+    }
+
+    private static boolean isDelimiter(int c) {
+        return c == '(' || c == ')' || c == '<' || c == '>' || c == '[' || c == ']'
+                || c == '{' || c == '}' || c == '/' || c == '%';
+    }
+
+    // Chaîne de texte (7.9.2.2) : UTF-16BE ou UTF-8 avec marque d'ordre, sinon PDFDocEncoding,
+    // approchée par ISO-8859-1 (identique pour les caractères courants)
+    static String text(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] & 0xff) == 0xfe && (bytes[1] & 0xff) == 0xff) {
+            return new String(bytes, 2, bytes.length - 2, StandardCharsets.UTF_16BE);
+        }
+        if (bytes.length >= 3 && (bytes[0] & 0xff) == 0xef && (bytes[1] & 0xff) == 0xbb && (bytes[2] & 0xff) == 0xbf) {
+            return new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    static class Ref {
+        final long number;
+        final int generation;
+
+        Ref(long number, int generation) {
+            this.number = number;
+            this.generation = generation;
+        }
+
+        @Override
+        public String toString() {
+            return number + " " + generation + " R";
+        }
+    }
+}
@@ -0,0 +1,584 @@
+package core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Métadonnées d'un PDF lues par petites plages, sans le corps du document : fin du fichier (startxref, trailer),
+// entrées utiles des tables de références, puis dictionnaire Info, catalogue et racine de l'arbre des pages.
+// Une table classique n'est pas lue en entier : l'entrée d'un objet est à une position calculable
+// (20 octets par entrée). Flux de références et flux d'objets (PDF 1.5) sont décompressés (Flate seulement).
+// Les chaînes d'un document chiffré ne sont pas déchiffrées : titre, auteur et producteur restent inconnus.
+public class PdfPeek {
+    private static final int TAIL_SIZE = 8 * 1024;
+    private static final int READ_SIZE = 4 * 1024;   // lecture minimale : les objets voisins viennent avec
+    private static final int MAX_OBJECT_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_SECTIONS = 64;      // chaîne /Prev, protège des boucles
+    private static final int ENTRY_SIZE = 20;
+    private static final Pattern XMP_LI = Pattern.compile("<rdf:li(?:\\s[^>]*)?>(.*?)</rdf:li>", Pattern.DOTALL);
+
+    // Accès par plages au fichier, local ou distant
+    public interface RangeSource {
+        long size();
+
+        // length octets à partir de position, moins en fin de fichier
+        byte[] read(long position, int length) throws IOException;
+    }
+
+    private final RangeSource source;
+    private final long size;
+    private final TreeMap<Long, byte[]> fetched = new TreeMap<>(); // plages déjà lues, par position
+    private final List<XrefSection> sections = new ArrayList<>();  // de la plus récente à la plus ancienne
+    private final Map<String, Object> trailer = new HashMap<>();
+    private final Map<Long, Object> objects = new HashMap<>();
+    private final Map<Long, byte[]> objectStreams = new HashMap<>();
+    private int reads;
+    private long bytesRead;
+
+    public PdfPeek(RangeSource source) {
+        this.source = source;
+        this.size = source.size();
+    }
+
+    // Lecture d'un fichier local, limitée aux mêmes plages que pour un fichier distant
+    public static PdfMetadata readFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return new PdfPeek(new RangeSource() {
+                @Override
+                public long size() {
+                    return size;
+                }
+
+                @Override
+                public byte[] read(long position, int length) throws IOException {
+                    ByteBuffer buffer = ByteBuffer.allocate(length);
+                    while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+                        // lectures positionnelles jusqu'à remplir le tampon
+                    }
+                    return buffer.position() == length ? buffer.array()
+                            : Arrays.copyOf(buffer.array(), buffer.position());
+                }
+            }).read();
+        }
+    }
+
+    // Un fichier malformé donne toujours une IOException, jamais une exception non vérifiée
+    public PdfMetadata read() throws IOException {
+        try {
+            return readMetadata();
+        } catch (RuntimeException e) {
+            throw new IOException("PDF invalide : " + e, e);
+        }
+    }
+
+    private PdfMetadata readMetadata() throws IOException {
+        loadXref(startXref());
+        String encryption = null;
+        int permissions = -1;
+        Map<String, Object> encrypt = dictionary(trailer.get("Encrypt"));
+        if (encrypt != null) {
+            encryption = encrypt.get("Filter") + " V" + number(encrypt.get("V"), 0) + " R" + number(encrypt.get("R"), 0);
+            permissions = (int) number(encrypt.get("P"), -1);
+        }
+        Map<String, Object> catalog;
+        try {
+            catalog = dictionary(trailer.get("Root"));
+        } catch (IOException e) {
+            if (encryption == null) {
+                throw e;
+            }
+            catalog = null; // rangé dans un flux d'objets chiffré
+        }
+        if (catalog == null) {
+            if (encryption == null) {
+                throw new IOException("PDF invalide : catalogue (/Root) introuvable");
+            }
+            return new PdfMetadata(-1, null, null, null, encryption, permissions);
+        }
+        String title = null;
+        String author = null;
+        String producer = null;
+        if (encryption == null) {
+            Map<String, Object> info = dictionary(trailer.get("Info"));
+            if (info != null) {
+                title = string(info.get("Title"));
+                author = string(info.get("Author"));
+                producer = string(info.get("Producer"));
+            }
+            if ((title == null || author == null || producer == null) && catalog.get("Metadata") != null) {
+                String xmp = xmp(catalog.get("Metadata"));
+                if (xmp != null) {
+                    title = title != null ? title : xmpProperty(xmp, "dc:title");
+                    author = author != null ? author : xmpProperty(xmp, "dc:creator");
+                    producer = producer != null ? producer : xmpProperty(xmp, "pdf:Producer");
+                }
+            }
+        }
+        int pageCount = -1;
+        try {
+            Map<String, Object> pages = dictionary(catalog.get("Pages"));
+            if (pages != null) {
+                pageCount = (int) number(resolve(pages.get("Count")), -1);
+            }
+        } catch (IOException e) {
+            if (encryption == null) {
+                throw e;
+            }
+        }
+        return new PdfMetadata(pageCount, title, author, producer, encryption, permissions);
+    }
+
+    // Requêtes (ou lectures du fichier) nécessaires jusqu'ici
+    public int getReads() {
+        return reads;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    private long startXref() throws IOException {
+        long from = Math.max(0, size - TAIL_SIZE);
+        String tail = new String(bytes(from, (int) (size - from)), StandardCharsets.ISO_8859_1);
+        int keyword = tail.lastIndexOf("startxref");
+        if (keyword < 0) {
+            throw new IOException("PDF invalide ou incomplet : startxref introuvable");
+        }
+        Matcher m = Pattern.compile("startxref\\s+(\\d{1,18})").matcher(tail).region(keyword, tail.length());
+        if (!m.find() || Long.parseLong(m.group(1)) >= size) {
+            throw new IOException("PDF invalide : position startxref incorrecte");
+        }
+        return Long.parseLong(m.group(1));
+    }
+
+    // Charge la section à offset puis ses précédentes (/XRefStm, /Prev) ; les trailers sont fusionnés,
+    // le plus récent l'emporte
+    private void loadXref(long offset) throws IOException {
+        List<Long> queue = new ArrayList<>(List.of(offset));
+        while (!queue.isEmpty() && sections.size() < MAX_SECTIONS) {
+            long position = queue.remove(0);
+            XrefSection section = parse(position, p -> p.keywordAhead("xref"))
+                    ? tableSection(position) : streamSection(position);
+            sections.add(section);
+            for (Map.Entry<String, Object> e : section.trailer.entrySet()) {
+                trailer.putIfAbsent(e.getKey(), e.getValue());
+            }
+            if (section.trailer.get("XRefStm") instanceof Long) {
+                queue.add(0, (Long) section.trailer.get("XRefStm"));
+            }
+            if (section.trailer.get("Prev") instanceof Long) {
+                queue.add((Long) section.trailer.get("Prev"));
+            }
+        }
+    }
+
+    // Table classique : seuls les en-têtes de sous-sections et le trailer sont lus
+    private XrefSection tableSection(long offset) throws IOException {
+        XrefSection section = new XrefSection();
+        long position = parse(offset, p -> {
+            p.expectKeyword("xref");
+            return (long) p.getPosition();
+        }) + offset;
+        while (true) {
+            long start = position;
+            long[] header = parse(start, p -> {
+                if (p.keywordAhead("trailer")) {
+                    return null;
+                }
+                long first = p.integer();
+                long count = p.integer();
+                p.skipSpace();
+                return new long[]{first, count, p.getPosition()};
+            });
+            if (header == null) {
+                break;
+            }
+            if (header[1] < 0 || header[1] > size / ENTRY_SIZE) {
+                throw new IOException("PDF invalide : sous-section de " + header[1] + " entrées");
+            }
+            section.subsections.add(new long[]{header[0], header[1], start + header[2]});
+            position = start + header[2] + header[1] * ENTRY_SIZE;
+        }
+        Object dict = parse(position, p -> {
+            p.expectKeyword("trailer");
+            return p.next();
+        });
+        if (!(dict instanceof Map)) {
+            throw new IOException("PDF invalide : trailer illisible");
+        }
+        section.trailer = asDictionary(dict);
+        return section;
+    }
+
+    // Flux de références : le dictionnaire du flux tient lieu de trailer
+    private XrefSection streamSection(long offset) throws IOException {
+        Object object = readObject(offset);
+        if (!(object instanceof Stream) || !"XRef".equals(((Stream) object).dict.get("Type"))) {
+            throw new IOException("PDF invalide : pas de table de références à l'octet " + offset);
+        }
+        Stream stream = (Stream) object;
+        byte[] data = decode(stream);
+        int[] w = widths(stream.dict.get("W"));
+        List<?> index = stream.dict.get("Index") instanceof List
+                ? (List<?>) stream.dict.get("Index") : List.of(0L, number(stream.dict.get("Size"), 0));
+        XrefSection section = new XrefSection();
+        section.trailer = stream.dict;
+        int position = 0;
+        int rowSize = w[0] + w[1] + w[2];
+        for (int i = 0; i + 1 < index.size(); i += 2) {
+            long first = number(index.get(i), 0);
+            long count = number(index.get(i + 1), 0);
+            for (long n = first; n < first + count && position + rowSize <= data.length; n++) {
+                long type = w[0] == 0 ? 1 : field(data, position, w[0]);
+                long second = field(data, position + w[0], w[1]);
+                long third = field(data, position + w[0] + w[1], w[2]);
+                position += rowSize;
+                section.entries.putIfAbsent(n, new long[]{type, second, third});
+            }
+        }
+        return section;
+    }
+
+    // /W : largeur en octets des trois champs d'une ligne, chacune tenant dans un long
+    private static int[] widths(Object value) throws IOException {
+        if (!(value instanceof List) || ((List<?>) value).size() < 3) {
+            throw new IOException("PDF invalide : /W du flux de références " + value);
+        }
+        List<?> widths = (List<?>) value;
+        int[] w = new int[3];
+        for (int i = 0; i < 3; i++) {
+            long width = number(widths.get(i), -1);
+            if (width < 0 || width > 8) {
+                throw new IOException("PDF invalide : /W du flux de références " + widths);
+            }
+            w[i] = (int) width;
+        }
+        return w;
+    }
+
+    // {type, champ 2, champ 3} comme dans un flux de références (1 : position, 2 : flux d'objets et rang),
+    // ou null si aucune section n'a l'objet en service
+    private long[] entry(long number) throws IOException {
+        for (XrefSection section : sections) {
+            long[] found = section.entries.get(number);
+            if (found != null && found[0] != 0) {
+                return found;
+            }
+            for (long[] sub : section.subsections) {
+                if (number >= sub[0] && number < sub[0] + sub[1]) {
+                    long position = sub[2] + (number - sub[0]) * ENTRY_SIZE;
+                    long[] classic = parse(position, p -> {
+                        long offset = p.integer();
+                        p.integer();
+                        p.skipSpace();
+                        return p.keywordAhead("n") ? new long[]{1, offset, 0} : null;
+                    });
+                    if (classic != null) {
+                        return classic;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Object resolve(Object value) throws IOException {
+        if (!(value instanceof PdfParser.Ref)) {
+            return value;
+        }
+        long number = ((PdfParser.Ref) value).number;
+        if (objects.containsKey(number)) {
+            return objects.get(number);
+        }
+        objects.put(number, null); // référence circulaire : l'objet vaut null
+        long[] entry = entry(number);
+        Object object = null;
+        if (entry != null && entry[0] == 1) {
+            object = readObject(entry[1]);
+        } else if (entry != null && entry[0] == 2) {
+            object = readCompressed(entry[1], number);
+        }
+        objects.put(number, object);
+        return object;
+    }
+
+    private Object readObject(long offset) throws IOException {
+        return parse(offset, p -> {
+            p.objectHeader();
+            Object value = p.next();
+            if (value instanceof Map && p.streamStart()) {
+                return new Stream(asDictionary(value), offset + p.getPosition());
+            }
+            return value;
+        });
+    }
+
+    // Objet rangé dans un flux d'objets : en-tête de N paires (numéro, position) puis les objets à partir de /First
+    private Object readCompressed(long streamNumber, long number) throws IOException {
+        Object stream = resolve(new PdfParser.Ref(streamNumber, 0));
+        if (!(stream instanceof Stream)) {
+            throw new IOException("PDF invalide : flux d'objets " + streamNumber + " introuvable");
+        }
+        Map<String, Object> dict = ((Stream) stream).dict;
+        byte[] data = objectStreams.get(streamNumber);
+        if (data == null) {
+            data = decode((Stream) stream);
+            objectStreams.put(streamNumber, data);
+        }
+        long count = number(dict.get("N"), 0);
+        long first = number(dict.get("First"), 0);
+        PdfParser header = new PdfParser(data, 0);
+        for (long i = 0; i < count; i++) {
+            long n = header.integer();
+            long offset = header.integer();
+            if (n == number) {
+                if (first < 0 || offset < 0 || first + offset >= data.length) {
+                    throw new IOException("PDF invalide : objet " + number + " hors du flux d'objets " + streamNumber);
+                }
+                return new PdfParser(data, (int) (first + offset)).next();
+            }
+        }
+        return null;
+    }
+
+    private byte[] decode(Stream stream) throws IOException {
+        long length = number(resolve(stream.dict.get("Length")), -1);
+        if (length < 0 || length > MAX_OBJECT_SIZE) {
+            throw new IOException("PDF invalide : longueur de flux " + length);
+        }
+        byte[] data = bytes(stream.dataOffset, (int) length);
+        Object filter = stream.dict.get("Filter");
+        Object parms = resolve(stream.dict.get("DecodeParms"));
+        if (filter instanceof List) {
+            List<?> filters = (List<?>) filter;
+            if (filters.size() > 1) {
+                throw new IOException("filtres de flux en cascade non gérés : " + filters);
+            }
+            filter = filters.isEmpty() ? null : filters.get(0);
+            parms = parms instanceof List && !((List<?>) parms).isEmpty() ? resolve(((List<?>) parms).get(0)) : parms;
+        }
+        if (filter == null) {
+            return data;
+        }
+        if (!"FlateDecode".equals(filter)) {
+            throw new IOException("filtre de flux non géré : " + filter);
+        }
+        byte[] inflated = inflate(data);
+        Map<String, Object> decodeParms = parms instanceof Map ? asDictionary(parms) : Map.of();
+        long predictor = number(decodeParms.get("Predictor"), 1);
+        if (predictor >= 10) {
+            return unpredict(inflated, number(decodeParms.get("Columns"), 1), number(decodeParms.get("Colors"), 1),
+                    number(decodeParms.get("BitsPerComponent"), 8));
+        }
+        if (predictor != 1) {
+            throw new IOException("prédicteur " + predictor + " non géré");
+        }
+        return inflated;
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[16 * 1024];
+            while (!inflater.finished() && !inflater.needsInput() && !inflater.needsDictionary()) {
+                int n = inflater.inflate(buffer);
+                out.write(buffer, 0, n);
+                if (out.size() > MAX_OBJECT_SIZE * 4) {
+                    throw new IOException("flux décompressé trop grand");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("flux Flate invalide : " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Prédicteurs PNG (RFC 2083, 6) : chaque ligne est précédée de son type de filtre
+    private static byte[] unpredict(byte[] data, long columns, long colors, long bitsPerComponent) throws IOException {
+        if (columns <= 0 || colors <= 0 || colors > 32 || bitsPerComponent <= 0 || bitsPerComponent > 16
+                || columns * colors * bitsPerComponent > 8L * MAX_OBJECT_SIZE) {
+            throw new IOException("PDF invalide : paramètres de prédicteur " + columns + "x" + colors + "x"
+                    + bitsPerComponent);
+        }
+        int pixel = (int) Math.max(1, colors * bitsPerComponent / 8);
+        int row = (int) ((columns * colors * bitsPerComponent + 7) / 8);
+        int rows = data.length / (row + 1);
+        byte[] out = new byte[rows * row];
+        for (int r = 0; r < rows; r++) {
+            int type = data[r * (row + 1)];
+            int in = r * (row + 1) + 1;
+            int at = r * row;
+            for (int i = 0; i < row; i++) {
+                int raw = data[in + i] & 0xff;
+                int left = i >= pixel ? out[at + i - pixel] & 0xff : 0;
+                int up = r > 0 ? out[at + i - row] & 0xff : 0;
+                int upLeft = r > 0 && i >= pixel ? out[at + i - row - pixel] & 0xff : 0;
+                int value = switch (type) {
+                    case 0 -> raw;
+                    case 1 -> raw + left;
+                    case 2 -> raw + up;
+                    case 3 -> raw + (left + up) / 2;
+                    case 4 -> raw + paeth(left, up, upLeft);
+                    default -> throw new IOException("prédicteur PNG " + type + " invalide");
+                };
+                out[at + i] = (byte) value;
+            }
+        }
+        return out;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+    }
+
+    private String xmp(Object metadata) throws IOException {
+        Object stream = resolve(metadata);
+        if (!(stream instanceof Stream)) {
+            return null;
+        }
+        try {
+            return new String(decode((Stream) stream), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null; // métadonnées XMP facultatives : le dictionnaire Info suffit
+        }
+    }
+
+    // <dc:title><rdf:Alt><rdf:li>…</rdf:li>, <pdf:Producer>…</pdf:Producer> ou attribut pdf:Producer="…"
+    private static String xmpProperty(String xml, String property) {
+        Matcher element = Pattern.compile("<" + property + "(?:\\s[^>]*)?>(.*?)</" + property + ">", Pattern.DOTALL)
+                .matcher(xml);
+        String value = null;
+        if (element.find()) {
+            Matcher li = XMP_LI.matcher(element.group(1));
+            value = li.find() ? li.group(1) : element.group(1);
+        } else {
+            Matcher attribute = Pattern.compile(property + "\\s*=\\s*\"([^\"]*)\"").matcher(xml);
+            if (attribute.find()) {
+                value = attribute.group(1);
+            }
+        }
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return value.trim().replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private Map<String, Object> dictionary(Object value) throws IOException {
+        Object resolved = resolve(value);
+        if (resolved instanceof Stream) {
+            return ((Stream) resolved).dict;
+        }
+        return resolved instanceof Map ? asDictionary(resolved) : null;
+    }
+
+    private String string(Object value) throws IOException {
+        Object resolved = resolve(value);
+        if (!(resolved instanceof byte[])) {
+            return null;
+        }
+        String text = PdfParser.text((byte[]) resolved).trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asDictionary(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static long number(Object value, long fallback) {
+        return value instanceof Number ? ((Number) value).longValue() : fallback;
+    }
+
+    private static long field(byte[] data, int position, int width) {
+        long value = 0;
+        for (int i = 0; i < width; i++) {
+            value = value << 8 | (data[position + i] & 0xff);
+        }
+        return value;
+    }
+
+    // Analyse à partir de position dans un extrait de plus en plus large, tant que l'objet dépasse de l'extrait
+    private <T> T parse(long position, Step<T> step) throws IOException {
+        if (position < 0 || position >= size) {
+            throw new IOException("PDF invalide : position " + position + " hors du fichier");
+        }
+        for (int window = READ_SIZE; ; window *= 4) {
+            int length = (int) Math.min(window, size - position);
+            try {
+                return step.apply(new PdfParser(bytes(position, length), 0));
+            } catch (EOFException e) {
+                if (position + length >= size || window >= MAX_OBJECT_SIZE) {
+                    throw new IOException("PDF tronqué : objet incomplet à l'octet " + position, e);
+                }
+            } catch (IOException e) {
+                throw new IOException(e.getMessage() + " (lecture à partir de l'octet " + position + ")", e);
+            }
+        }
+    }
+
+    // Réutilise une plage déjà lue quand elle couvre la demande, sinon lit au moins READ_SIZE octets
+    private byte[] bytes(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position > size - length) {
+            throw new IOException("PDF invalide : " + length + " octets à l'octet " + position + " hors du fichier");
+        }
+        Map.Entry<Long, byte[]> cached = fetched.floorEntry(position);
+        if (cached != null && cached.getKey() + cached.getValue().length >= position + length) {
+            int from = (int) (position - cached.getKey());
+            return Arrays.copyOfRange(cached.getValue(), from, from + length);
+        }
+        int toRead = (int) Math.min(Math.max(length, READ_SIZE), size - position);
+        byte[] data = source.read(position, toRead);
+        reads++;
+        bytesRead += data.length;
+        if (data.length < length) {
+            throw new IOException("lecture incomplète : " + data.length + " octets sur " + length + " à l'octet " + position);
+        }
+        fetched.put(position, data);
+        return data.length == length ? data : Arrays.copyOf(data, length);
+    }
+
+    private interface Step<T> {
+        T apply(PdfParser parser) throws IOException;
+    }
+
+    private static class XrefSection {
+        final List<long[]> subsections = new ArrayList<>(); // {premier numéro, nombre, position des entrées}
+        final Map<Long, long[]> entries = new HashMap<>();  // flux de références
+        Map<String, Object> trailer;
+    }
+
+    private static class Stream {
+        final Map<String, Object> dict;
+        final long dataOffset;
+
+        Stream(Map<String, Object> dict, long dataOffset) {
+            this.dict = dict;
+            this.dataOffset = dataOffset;
+        }
+    }
+}
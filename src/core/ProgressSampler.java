@@ -0,0 +1,37 @@
+package core;
+
+// Débit lissé et temps restant, calculés par un seul lecteur à intervalle fixe (timer de l'IHM, CLI)
+public class ProgressSampler {
+    private static final double SMOOTHING = 0.3; // poids du dernier échantillon
+
+    private long lastBytes = -1;
+    private long lastTime;
+    private double speed; // octets/s
+
+    public void sample(long transferredBytes) {
+        long now = System.nanoTime();
+        if (lastBytes >= 0 && now > lastTime) {
+            double instant = Math.max(0, transferredBytes - lastBytes) * 1e9 / (now - lastTime);
+            speed = speed == 0 ? instant : speed + SMOOTHING * (instant - speed);
+        }
+        lastBytes = transferredBytes;
+        lastTime = now;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    // -1 tant que le débit est inconnu
+    public long getEtaSeconds(long remainingBytes) {
+        if (speed <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(remainingBytes / speed);
+    }
+
+    public void reset() {
+        lastBytes = -1;
+        speed = 0;
+    }
+}
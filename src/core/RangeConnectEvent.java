@@ -0,0 +1,31 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// De l'envoi d'une requête de plage à la réception des en-têtes (connexion, TLS et attente serveur)
+@Name("core.RangeConnect")
+@Label("Range Connect")
+@Category({"Downloader", "Network"})
+@Description("Requête Range jusqu'aux en-têtes de réponse")
+class RangeConnectEvent extends jdk.jfr.Event {
+    @Label("Host")
+    String host;
+
+    @Label("Range Start")
+    long rangeStart;
+
+    @Label("Range End")
+    long rangeEnd;
+
+    @Label("Status")
+    int status;
+
+    @Label("Connect Time")
+    @Description("TCP + TLS, -1 si le transport ne l'expose pas")
+    @Timespan(Timespan.NANOSECONDS)
+    long connectTime;
+}
@@ -0,0 +1,11 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Reçoit les octets d'une réponse à plusieurs plages, avec leur position dans le fichier
+public interface RangeConsumer {
+
+    // false pour arrêter la réception (le reste de la réponse est abandonné)
+    boolean accept(long position, ByteBuffer data) throws IOException;
+}
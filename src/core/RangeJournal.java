@@ -0,0 +1,161 @@
+package core;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+
+// Journal de reprise : URL, validateurs du serveur, taille et bitmap des blocs déjà écrits.
+// Un bloc n'est marqué qu'une fois entièrement écrit dans le fichier de sortie.
+public class RangeJournal {
+    public static final long BLOCK_SIZE = 64 * 1024;
+    public static final Path DEFAULT_DIR = Paths.get("downloads", ".journal");
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private final Path path;
+    private final String url;
+    private final String etag;
+    private final String lastModified;
+    private final long size;
+    private final String outputFileName;
+    private final BitSet completed;
+    private final int blockCount;
+    private long lastFlush;
+
+    private RangeJournal(Path path, String url, String etag, String lastModified, long size,
+                         String outputFileName, BitSet completed) {
+        this.path = path;
+        this.url = url;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.outputFileName = outputFileName;
+        this.completed = completed;
+        this.blockCount = (int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    }
+
+    public static RangeJournal create(Path dir, String url, ResourceInfo info, String outputFileName)
+            throws IOException {
+        Files.createDirectories(dir);
+        RangeJournal journal = new RangeJournal(pathFor(dir, url), url, info.getEtag(), info.getLastModified(),
+                info.getSize(), outputFileName, new BitSet());
+        journal.flush();
+        return journal;
+    }
+
+    // null si aucun journal n'existe pour cette URL
+    public static RangeJournal load(Path dir, String url) throws IOException {
+        Path path = pathFor(dir, url);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Properties p = new Properties();
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            p.load(in);
+        }
+        if (!url.equals(p.getProperty("url"))
+                || Long.parseLong(p.getProperty("blockSize", "0")) != BLOCK_SIZE) {
+            return null;
+        }
+        BitSet completed = BitSet.valueOf(Base64.getDecoder().decode(p.getProperty("completed", "")));
+        return new RangeJournal(path, url, p.getProperty("etag"), p.getProperty("lastModified"),
+                Long.parseLong(p.getProperty("size")), p.getProperty("output"), completed);
+    }
+
+    private static Path pathFor(Path dir, String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(hash) + ".journal");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Le journal ne vaut que pour le même fichier distant et une sortie encore présente
+    public boolean matches(ResourceInfo info) {
+        if (info.getSize() != size || !new File(outputFileName).isFile()
+                || new File(outputFileName).length() != size) {
+            return false;
+        }
+        if (info.getEtag() != null || etag != null) {
+            return info.getEtag() != null && info.getEtag().equals(etag);
+        }
+        return info.getLastModified() != null && info.getLastModified().equals(lastModified);
+    }
+
+    public String getOutputFileName() {
+        return outputFileName;
+    }
+
+    public synchronized long getCompletedBytes() {
+        long bytes = (long) completed.cardinality() * BLOCK_SIZE;
+        if (blockCount > 0 && completed.get(blockCount - 1)) {
+            bytes -= (long) blockCount * BLOCK_SIZE - size; // dernier bloc incomplet
+        }
+        return bytes;
+    }
+
+    public synchronized boolean isComplete() {
+        return completed.cardinality() == blockCount;
+    }
+
+    // Marque les blocs entièrement couverts par [from, to] ; écrit le journal au plus une fois par seconde
+    public synchronized void markCompleted(long from, long to) throws IOException {
+        long first = (from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        long last = to == size - 1 ? blockCount - 1 : (to + 1) / BLOCK_SIZE - 1;
+        if (last >= first) {
+            completed.set((int) first, (int) last + 1);
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastFlush >= FLUSH_INTERVAL_MS) {
+            flush();
+        }
+    }
+
+    // Plages [début, fin] encore à télécharger, fusionnées
+    public synchronized List<long[]> missingRanges() {
+        List<long[]> ranges = new ArrayList<>();
+        int block = completed.nextClearBit(0);
+        while (block < blockCount) {
+            int next = completed.nextSetBit(block);
+            int end = next < 0 ? blockCount : Math.min(next, blockCount);
+            ranges.add(new long[]{block * BLOCK_SIZE, Math.min((long) end * BLOCK_SIZE, size) - 1});
+            block = completed.nextClearBit(end);
+        }
+        return ranges;
+    }
+
+    public synchronized void flush() throws IOException {
+        Properties p = new Properties();
+        p.setProperty("url", url);
+        if (etag != null) {
+            p.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            p.setProperty("lastModified", lastModified);
+        }
+        p.setProperty("size", String.valueOf(size));
+        p.setProperty("blockSize", String.valueOf(BLOCK_SIZE));
+        p.setProperty("output", outputFileName);
+        p.setProperty("completed", Base64.getEncoder().encodeToString(completed.toByteArray()));
+
+        // écriture atomique : un arrêt brutal laisse l'ancien journal intact
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            p.store(out, "journal de reprise");
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastFlush = System.currentTimeMillis();
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,40 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// Une requête de plage complète, de l'envoi au dernier octet écrit
+@Name("core.RangeRead")
+@Label("Range Read")
+@Category({"Downloader", "Network"})
+@Description("Lecture du corps d'une requête Range")
+class RangeReadEvent extends jdk.jfr.Event {
+    @Label("URL")
+    String url;
+
+    @Label("Range Start")
+    long rangeStart;
+
+    @Label("Range End")
+    long rangeEnd;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Time To First Byte")
+    @Timespan(Timespan.NANOSECONDS)
+    long timeToFirstByte;
+
+    @Label("Stall Time")
+    @Description("Cumul des silences de plus d'une seconde entre deux tampons")
+    @Timespan(Timespan.NANOSECONDS)
+    long stallTime;
+
+    @Label("Outcome")
+    String outcome;
+}
@@ -0,0 +1,21 @@
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+// Une écriture sur disque ; seules les écritures lentes sont enregistrées par défaut
+@Name("core.RangeWrite")
+@Label("Range Write")
+@Category({"Downloader", "Disk"})
+@Threshold("1 ms")
+class RangeWriteEvent extends jdk.jfr.Event {
+    @Label("Position")
+    long position;
+
+    @Label("Bytes")
+    @DataAmount
+    int bytes;
+}
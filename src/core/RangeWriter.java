@@ -0,0 +1,24 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Écrit séquentiellement les octets d'une plage, à partir de son premier octet
+public interface RangeWriter extends Closeable {
+
+    void write(byte[] buffer, int offset, int length) throws IOException;
+
+    // Consomme tout ce qui reste dans data
+    default void write(ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        if (data.hasArray()) {
+            write(data.array(), data.arrayOffset() + data.position(), length);
+            data.position(data.limit());
+        } else {
+            byte[] copy = new byte[length];
+            data.get(copy);
+            write(copy, 0, length);
+        }
+    }
+}
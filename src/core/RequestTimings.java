@@ -0,0 +1,20 @@
+package core;
+
+// Temps d'établissement d'une requête de plage, mesurés par le transport
+public class RequestTimings {
+    private final long connectNanos;   // TCP + poignée de main TLS, -1 si le transport ne l'expose pas
+    private final long firstByteNanos; // envoi de la requête -> en-têtes de réponse reçus
+
+    public RequestTimings(long connectNanos, long firstByteNanos) {
+        this.connectNanos = connectNanos;
+        this.firstByteNanos = firstByteNanos;
+    }
+
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    public long getFirstByteNanos() {
+        return firstByteNanos;
+    }
+}
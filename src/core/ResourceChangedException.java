@@ -0,0 +1,12 @@
+package core;
+
+import java.io.IOException;
+
+// Le serveur a répondu 200 à une requête If-Range : le fichier distant n'est plus le même
+public class ResourceChangedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ResourceChangedException(String url) {
+        super("le fichier distant a changé depuis le début du téléchargement : " + url);
+    }
+}
@@ -0,0 +1,65 @@
+package core;
+
+// Ce que le serveur annonce pour une URL avant le téléchargement
+public class ResourceInfo {
+    private final String location;
+    private final long size;
+    private final String etag;
+    private final String lastModified;
+    private final boolean acceptsRanges;
+    private final boolean notModified;
+
+    public ResourceInfo(String location, long size, String etag, String lastModified, boolean acceptsRanges) {
+        this(location, size, etag, lastModified, acceptsRanges, false);
+    }
+
+    private ResourceInfo(String location, long size, String etag, String lastModified, boolean acceptsRanges,
+                         boolean notModified) {
+        this.location = location;
+        this.size = size;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.acceptsRanges = acceptsRanges;
+        this.notModified = notModified;
+    }
+
+    // Réponse 304 à une sonde conditionnelle : la copie locale est à jour, la taille n'est pas connue
+    public static ResourceInfo notModified(String location, String etag, String lastModified) {
+        return new ResourceInfo(location, -1, etag, lastModified, false, true);
+    }
+
+    // URL finale, après les redirections : les plages y sont demandées directement
+    public String getLocation() {
+        return location;
+    }
+
+    // -1 si inconnue (réponse sans Content-Length, en chunked par exemple)
+    public long getSize() {
+        return size;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    // Vrai quand le serveur a confirmé les requêtes partielles (Accept-Ranges ou réponse 206)
+    public boolean acceptsRanges() {
+        return acceptsRanges;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    // Valeur pour If-Range : un ETag faible n'y est pas autorisé
+    public String getValidator() {
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return lastModified;
+    }
+}
@@ -0,0 +1,10 @@
+package core;
+
+import java.io.IOException;
+
+// Décide, d'après les en-têtes d'une réponse, s'il faut en lire le corps
+public interface ResponseHandler {
+
+    // consumer du corps, ou null pour l'abandonner
+    BodyConsumer onResponse(ResourceInfo info) throws IOException;
+}
@@ -0,0 +1,40 @@
+package core;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Reprise des blocs en échec : attente exponentielle avec gigue, découpage des blocs
+// qui échouent à répétition, et budget global au-delà duquel le téléchargement échoue.
+public class RetryPolicy {
+    public static final long BASE_DELAY_MS = 500;
+    public static final long MAX_DELAY_MS = 30_000;
+    public static final int SPLIT_AFTER_FAILURES = 3;
+    public static final int SPLIT_PIECES = 4;
+    private static final int MIN_BUDGET = 20;
+
+    private final AtomicInteger budget;
+
+    public RetryPolicy(int budget) {
+        this.budget = new AtomicInteger(budget);
+    }
+
+    // Budget proportionnel au nombre de blocs à télécharger
+    public static RetryPolicy forChunks(int chunkCount) {
+        return new RetryPolicy(Math.max(MIN_BUDGET, chunkCount));
+    }
+
+    // false quand le budget est épuisé : le téléchargement doit être déclaré en échec
+    public boolean tryConsume() {
+        return budget.getAndDecrement() > 0;
+    }
+
+    public int getRemaining() {
+        return Math.max(0, budget.get());
+    }
+
+    // "Full jitter" : délai aléatoire entre 0 et base * 2^(n-1), plafonné
+    public long backoffMillis(int failures) {
+        long cap = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << Math.min(failures - 1, 16));
+        return ThreadLocalRandom.current().nextLong(0, cap + 1);
+    }
+}
@@ -0,0 +1,112 @@
+package core;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Téléchargement en un seul flux, pour les serveurs sans requêtes partielles ou sans taille annoncée :
+// ni découpage ni journal, écriture séquentielle et somme de contrôle calculée directement dans l'ordre.
+// Après une coupure, la requête reprend à l'octet reçu si le serveur accepte les plages,
+// sinon tout recommence depuis le début.
+class SingleStreamDownload {
+    private final DownloadSession session;
+    private final long fileSize;       // -1 si inconnue
+    private final boolean resumable;
+    private final MessageDigest digest; // null => pas de somme à calculer
+    private long received;
+
+    SingleStreamDownload(DownloadSession session, long fileSize, boolean resumable, boolean computeSha256) {
+        this.session = session;
+        this.fileSize = fileSize;
+        this.resumable = resumable;
+        try {
+            this.digest = computeSha256 ? MessageDigest.getInstance(StreamingDigest.ALGORITHM) : null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(StreamingDigest.ALGORITHM + " indisponible", e);
+        }
+    }
+
+    // Nombre d'octets du fichier complet ; -1 en cas d'annulation
+    long run() throws IOException, InterruptedException {
+        int failures = 0;
+        while (true) {
+            if (session.cancellation.isCancelled()) {
+                return -1;
+            }
+            try {
+                fetch();
+                return received;
+            } catch (ResourceChangedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (session.cancellation.isCancelled()) {
+                    return -1;
+                }
+                if (!session.retryPolicy.tryConsume()) {
+                    throw new IOException("budget de nouvelles tentatives épuisé : " + e.getMessage(), e);
+                }
+                session.metrics.recordRetry();
+                long delay = session.retryPolicy.backoffMillis(++failures);
+                if (!resumable && received > 0) {
+                    // sans plages, rien de ce qui a été reçu n'est réutilisable
+                    session.progress.add(-received);
+                    received = 0;
+                    if (digest != null) {
+                        digest.reset();
+                    }
+                }
+                session.listener.onLog("Flux interrompu (tentative " + failures + ") : " + e.getMessage()
+                        + ", reprise à l'octet " + received + " dans " + delay + " ms");
+                for (long end = System.currentTimeMillis() + delay;
+                     System.currentTimeMillis() < end && !session.cancellation.isCancelled(); ) {
+                    Thread.sleep(Math.min(100, delay));
+                }
+            }
+        }
+    }
+
+    // Somme hexadécimale du fichier, une fois run terminé
+    String getSha256() {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void fetch() throws IOException {
+        long from = received;
+        CancellationToken request = session.cancellation.newChild();
+        StallWatchdog.Watch watch = session.watchdog.watch(request);
+        try (RangeWriter out = session.sink.openRange(0, from, fileSize - 1)) {
+            RequestTimings timings = session.transport.fetch(session.url, from, -1,
+                    from > 0 ? session.ifRange : null, request, data -> {
+                watch.touch();
+                int len = data.remaining();
+                session.throttle.acquire(len, request, watch::touch);
+                int start = data.position();
+                long writeStart = System.nanoTime();
+                out.write(data);
+                session.metrics.recordWrite(System.nanoTime() - writeStart);
+                if (digest != null) {
+                    digest.update(data.position(start));
+                }
+                received += len;
+                session.progress.add(len);
+                return true;
+            });
+            session.metrics.recordRequest(timings);
+        } catch (IOException e) {
+            if (watch.isStalled()) {
+                throw new IOException("aucune donnée reçue depuis " + session.watchdog.getTimeoutMs() / 1000 + " s", e);
+            }
+            throw e;
+        } finally {
+            watch.close();
+            request.detach();
+        }
+        if (watch.isStalled()) {
+            throw new IOException("aucune donnée reçue depuis " + session.watchdog.getTimeoutMs() / 1000 + " s");
+        }
+        if (fileSize >= 0 && received != fileSize) {
+            throw new IOException("flux interrompu après " + received + " octets sur " + fileSize);
+        }
+    }
+}
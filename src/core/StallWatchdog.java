@@ -0,0 +1,79 @@
+package core;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Coupe les requêtes qui ne reçoivent plus rien : la lecture bloquée échoue et le bloc est repris
+public class StallWatchdog implements AutoCloseable {
+    public static final long DEFAULT_TIMEOUT_MS = 30_000;
+    private static final long CHECK_INTERVAL_MS = 1000;
+
+    private final long timeoutMs;
+    private final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+    private final Thread checker;
+    private volatile boolean running = true;
+
+    public StallWatchdog(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.checker = new Thread(this::checkLoop, "stall-watchdog");
+        this.checker.setDaemon(true);
+        this.checker.start();
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public Watch watch(CancellationToken request) {
+        Watch watch = new Watch(request);
+        watches.add(watch);
+        return watch;
+    }
+
+    private void checkLoop() {
+        while (running) {
+            try {
+                Thread.sleep(CHECK_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            for (Watch watch : watches) {
+                if ((now - watch.lastActivity) / 1_000_000 > timeoutMs) {
+                    watch.stalled = true;
+                    watches.remove(watch);
+                    watch.request.cancel();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        checker.interrupt();
+    }
+
+    public class Watch implements AutoCloseable {
+        private final CancellationToken request;
+        private volatile long lastActivity = System.nanoTime();
+        private volatile boolean stalled;
+
+        private Watch(CancellationToken request) {
+            this.request = request;
+        }
+
+        public void touch() {
+            lastActivity = System.nanoTime();
+        }
+
+        public boolean isStalled() {
+            return stalled;
+        }
+
+        @Override
+        public void close() {
+            watches.remove(this);
+        }
+    }
+}
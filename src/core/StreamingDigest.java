@@ -0,0 +1,244 @@
+package core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// SHA-256 calculé pendant le transfert : le préfixe contigu du fichier est haché à mesure qu'il s'allonge.
+// Les octets arrivés en avance sur le préfixe sont gardés en mémoire (dans la limite de MAX_BUFFERED),
+// au-delà ils ne sont que notés et seront relus dans le fichier quand le préfixe les rejoindra.
+// Un seul thread hache à la fois ; les autres déposent leurs octets et repartent.
+class StreamingDigest implements Closeable {
+    static final String ALGORITHM = "SHA-256";
+    private static final long MAX_BUFFERED = 32 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    private final MessageDigest digest = newDigest();
+    private final Path file;
+    private final TreeMap<Long, Segment> ahead = new TreeMap<>(); // au-delà du préfixe, par position
+    private long hashed;        // longueur du préfixe déjà haché
+    private boolean hashing;    // un thread est en train de faire avancer le préfixe
+    private long buffered;
+    private long readBack;
+    private FileChannel channel; // ouvert à la première relecture
+    private ByteBuffer readBuffer;
+
+    // missingRanges : plages [début, fin] encore à télécharger, le reste est déjà dans le fichier (reprise)
+    StreamingDigest(Path file, List<long[]> missingRanges, long fileSize) {
+        this.file = file;
+        long position = 0;
+        for (long[] range : missingRanges) {
+            if (range[0] > position) {
+                ahead.put(position, new Segment(range[0], null));
+            }
+            position = range[1] + 1;
+        }
+        if (position < fileSize) {
+            ahead.put(position, new Segment(fileSize, null));
+        }
+    }
+
+    // Octets qui viennent d'être écrits à la position donnée ; data peut être consommé
+    void update(long position, ByteBuffer data) throws IOException {
+        long end = position + data.remaining();
+        synchronized (this) {
+            if (end <= hashed) {
+                return; // déjà haché (octets réécrits après une reprise)
+            }
+            if (hashing || position > hashed) {
+                byte[] copy = null;
+                if (buffered + data.remaining() <= MAX_BUFFERED) {
+                    copy = new byte[data.remaining()];
+                    data.get(copy);
+                    buffered += copy.length;
+                }
+                add(position, new Segment(end, copy));
+                if (hashing || ahead.firstKey() > hashed) {
+                    return;
+                }
+                hashing = true;
+                data = null;
+            } else {
+                hashing = true;
+            }
+        }
+        try {
+            if (data != null) {
+                data.position(data.position() + (int) (hashed - position));
+                digest.update(data);
+                synchronized (this) {
+                    hashed = end;
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                hashing = false;
+            }
+            throw e;
+        }
+        catchUp();
+    }
+
+    // Appelé une fois tous les octets écrits : somme hexadécimale du fichier complet
+    String finish(long fileSize) throws IOException {
+        synchronized (this) {
+            if (hashing) {
+                throw new IllegalStateException("calcul de la somme encore en cours");
+            }
+            hashing = true;
+        }
+        catchUp();
+        if (hashed != fileSize) {
+            throw new IOException("somme " + ALGORITHM + " incomplète : " + hashed + " octets hachés sur " + fileSize);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Octets relus dans le fichier faute de place en mémoire (ou déjà présents lors d'une reprise)
+    synchronized long getReadBackBytes() {
+        return readBack;
+    }
+
+    // null accepté (aucune vérification demandée)
+    static void checkSha256(String sha256) {
+        if (sha256 != null && !sha256.matches("[0-9a-fA-F]{64}")) {
+            throw new IllegalArgumentException("somme SHA-256 invalide : " + sha256);
+        }
+    }
+
+    // Somme d'un fichier déjà complet, quand le calcul au fil de l'eau n'est pas possible
+    static String hashFile(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // Fait avancer le préfixe tant que le segment suivant le touche ; rend la main avec hashing à false
+    private void catchUp() throws IOException {
+        try {
+            while (true) {
+                long start;
+                Segment next;
+                synchronized (this) {
+                    Map.Entry<Long, Segment> first = ahead.firstEntry();
+                    if (first == null || first.getKey() > hashed) {
+                        hashing = false;
+                        return;
+                    }
+                    ahead.pollFirstEntry();
+                    if (first.getValue().bytes != null) {
+                        buffered -= first.getValue().bytes.length;
+                    }
+                    if (first.getValue().end <= hashed) {
+                        continue;
+                    }
+                    start = first.getKey();
+                    next = first.getValue();
+                }
+                long from = hashed; // seul ce thread modifie hashed tant que hashing est vrai
+                if (next.bytes != null) {
+                    digest.update(next.bytes, (int) (from - start), (int) (next.end - from));
+                } else {
+                    read(from, next.end);
+                }
+                synchronized (this) {
+                    hashed = next.end;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                hashing = false;
+            }
+            throw e;
+        }
+    }
+
+    private void read(long from, long end) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        }
+        long position = from;
+        while (position < end) {
+            readBuffer.clear();
+            readBuffer.limit((int) Math.min(readBuffer.capacity(), end - position));
+            int n = channel.read(readBuffer, position);
+            if (n < 0) {
+                throw new IOException("fin de fichier inattendue à l'octet " + position + " de " + file);
+            }
+            readBuffer.flip();
+            digest.update(readBuffer);
+            position += n;
+        }
+        synchronized (this) {
+            readBack += end - from;
+        }
+    }
+
+    // Fusionne les plages seulement notées qui se suivent, pour garder la table petite
+    private void add(long start, Segment segment) {
+        if (segment.bytes == null) {
+            Map.Entry<Long, Segment> previous = ahead.floorEntry(start);
+            if (previous != null && previous.getValue().bytes == null && previous.getValue().end == start) {
+                ahead.put(previous.getKey(), new Segment(segment.end, null));
+                return;
+            }
+        }
+        Segment replaced = ahead.put(start, segment);
+        if (replaced != null) {
+            if (replaced.bytes != null) {
+                buffered -= replaced.bytes.length;
+            }
+            if (replaced.end > segment.end) {
+                ahead.put(start, replaced); // la plage la plus longue l'emporte
+                if (replaced.bytes != null) {
+                    buffered += replaced.bytes.length;
+                }
+                if (segment.bytes != null) {
+                    buffered -= segment.bytes.length;
+                }
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " indisponible", e);
+        }
+    }
+
+    private static class Segment {
+        final long end;      // exclusive
+        final byte[] bytes;  // null => à relire dans le fichier
+
+        Segment(long end, byte[] bytes) {
+            this.end = end;
+            this.bytes = bytes;
+        }
+    }
+}
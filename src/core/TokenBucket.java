@@ -0,0 +1,58 @@
+package core;
+
+// Seau à jetons en octets/s, modifiable à chaud. Chaque lecture réserve ses octets
+// à la suite des précédentes : les attentes sont servies dans l'ordre d'arrivée,
+// aucun thread ne peut monopoliser le débit.
+public class TokenBucket {
+    private static final long MIN_BURST = 64 * 1024;
+    private static final double BURST_SECONDS = 0.25;
+
+    private long rate; // octets/s, 0 => illimité
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public TokenBucket(long rate) {
+        setRate(rate);
+    }
+
+    public synchronized long getRate() {
+        return rate;
+    }
+
+    public final synchronized void setRate(long rate) {
+        refill();
+        boolean wasUnlimited = this.rate <= 0;
+        this.rate = Math.max(0, rate);
+        if (wasUnlimited) {
+            tokens = burst();
+        } else {
+            tokens = Math.min(tokens, burst());
+        }
+    }
+
+    public synchronized boolean isUnlimited() {
+        return rate <= 0;
+    }
+
+    // Réserve n octets et renvoie l'attente en nanosecondes avant de pouvoir les consommer
+    synchronized long reserve(int n) {
+        if (rate <= 0) {
+            return 0;
+        }
+        refill();
+        tokens -= n;
+        return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / rate);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        if (rate > 0) {
+            tokens = Math.min(burst(), tokens + (now - lastRefill) * rate / 1e9);
+        }
+        lastRefill = now;
+    }
+
+    private double burst() {
+        return Math.max(MIN_BURST, rate * BURST_SECONDS);
+    }
+}
@@ -0,0 +1,118 @@
+package core;
+
+import java.io.IOException;
+import java.util.List;
+
+// Couche HTTP utilisée par le Downloader et ses tâches
+public interface Transport {
+
+    // HEAD, complété par une requête 0-0 quand il ne suffit pas à savoir si les plages sont acceptées
+    default ResourceInfo probe(String url) throws IOException {
+        return probe(url, null, null);
+    }
+
+    // Sonde conditionnelle (If-None-Match / If-Modified-Since, peuvent être null) pour revalider
+    // une copie locale : ResourceInfo.isNotModified() quand le serveur répond 304
+    ResourceInfo probe(String url, String ifNoneMatch, String ifModifiedSince) throws IOException;
+
+    // Télécharge les octets [from, to] et les passe au consumer au fil de l'eau.
+    // to < 0 : jusqu'à la fin du corps, sans en-tête Range si from vaut 0 (taille inconnue, pas de plages).
+    // ifRange (ETag ou Last-Modified, peut être null) garantit que les plages viennent du même fichier.
+    // Renvoie les temps d'établissement de la requête.
+    RequestTimings fetch(String url, long from, long to, String ifRange, CancellationToken cancellation,
+               BodyConsumer consumer) throws IOException;
+
+    // GET "Range: bytes=0-(limit-1)" qui tient lieu de sonde : handler reçoit le ResourceInfo tiré des en-têtes
+    // (taille totale par Content-Range) et renvoie le consumer du corps, ou null pour l'abandonner.
+    // Un fichier d'au plus limit octets arrive ainsi en une seule requête ; 200 si le serveur ignore les plages.
+    // null, sans appel au handler, quand la réponse ne renseigne pas sur le fichier (416 : fichier vide).
+    // Par défaut : sonde puis requête du fichier entier.
+    default RequestTimings fetchStart(String url, long limit, CancellationToken cancellation, ResponseHandler handler)
+            throws IOException {
+        ResourceInfo info = probe(url);
+        BodyConsumer consumer = handler.onResponse(info);
+        if (consumer == null) {
+            return new RequestTimings(-1, -1);
+        }
+        return fetch(info.getLocation(), 0, -1, null, cancellation, consumer);
+    }
+
+    // Plusieurs plages [début, fin], croissantes et disjointes, en une seule requête "Range: bytes=a-b,c-d,..." :
+    // le consumer reçoit les octets avec leur position, rognés aux plages demandées (le serveur peut les fusionner).
+    // null, sans rien transmettre, quand le serveur ne répond pas en multipart/byteranges :
+    // l'appelant repasse à une requête par plage.
+    default RequestTimings fetchRanges(String url, List<long[]> ranges, String ifRange, CancellationToken cancellation,
+                                       RangeConsumer consumer) throws IOException {
+        return null;
+    }
+
+    // Faux quand fetchRanges renverrait null, par exemple après un refus d'un serveur de cet hôte
+    default boolean acceptsMultipleRanges(String url) {
+        return false;
+    }
+
+    // Réponse attendue à une requête Range : 206, ou 200 seulement si le corps commence à l'octet 0
+    static void checkRangeStatus(String url, int status, long from, String ifRange) throws IOException {
+        if (status == 206) {
+            return;
+        }
+        if (status == 200) {
+            if (ifRange != null) {
+                throw new ResourceChangedException(url);
+            }
+            if (from == 0) {
+                return;
+            }
+            throw new HttpStatusException(status, "le serveur ignore l'en-tête Range");
+        }
+        throw new HttpStatusException(status);
+    }
+
+    // Réponse à une requête multi-plages : faux pour un 206 ; vrai pour un 200 du même fichier (le serveur ignore
+    // les plages multiples, ce que la RFC 9110 permet) ; exception si le fichier a changé ou en cas d'erreur
+    static boolean multipleRangesRefused(String url, int status, String ifRange, String etag, String lastModified)
+            throws IOException {
+        if (status == 206) {
+            return false;
+        }
+        if (status == 200) {
+            if (ifRange != null && !ifRange.equals(etag) && !ifRange.equals(lastModified)) {
+                throw new ResourceChangedException(url);
+            }
+            return true;
+        }
+        throw new HttpStatusException(status);
+    }
+
+    static String rangesHeader(List<long[]> ranges) {
+        StringBuilder header = new StringBuilder("bytes=");
+        for (long[] range : ranges) {
+            if (header.length() > 6) {
+                header.append(',');
+            }
+            header.append(range[0]).append('-').append(range[1]);
+        }
+        return header.toString();
+    }
+
+    // En-tête Range d'une requête [from, to], null quand le corps entier est demandé
+    static String rangeHeader(long from, long to) {
+        if (to < 0) {
+            return from > 0 ? "bytes=" + from + "-" : null;
+        }
+        return "bytes=" + from + "-" + to;
+    }
+
+    // Taille totale annoncée par "Content-Range: bytes a-b/total", -1 si absente ou "*"
+    static long parseContentRangeTotal(String contentRange) {
+        if (contentRange == null) {
+            return -1;
+        }
+        int slash = contentRange.lastIndexOf('/');
+        try {
+            return slash < 0 ? -1 : Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
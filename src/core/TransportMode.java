@@ -0,0 +1,10 @@
+package core;
+
+public enum TransportMode {
+    URL_CONNECTION, // HttpURLConnection bloquant, une connexion par plage
+    HTTP_CLIENT;    // java.net.http.HttpClient asynchrone, multiplexage HTTP/2
+
+    public Transport create() {
+        return this == HTTP_CLIENT ? new HttpClientTransport() : new UrlConnectionTransport();
+    }
+}
@@ -0,0 +1,298 @@
+package core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Les corps sont lus dans des tampons du BufferPool et passés au consumer dans un tampon direct :
+// aucune allocation par lecture, ni par plage une fois le pool chaud.
+public class UrlConnectionTransport implements Transport {
+    public static final int ADAPTIVE_BUFFER_SIZE = 0;
+    private static final long TARGET_READ_NANOS = 10_000_000; // ~10 ms de données par tampon
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final ConnectionPool pool;
+    private final int bufferSize;
+    private volatile double connectionRate; // octets/s par connexion, moyenne lissée des requêtes terminées
+    private final Set<String> singleRangeHosts = ConcurrentHashMap.newKeySet(); // refus du multi-plages
+
+    public UrlConnectionTransport() {
+        this(ConnectionPool.shared());
+    }
+
+    public UrlConnectionTransport(ConnectionPool pool) {
+        this(pool, ADAPTIVE_BUFFER_SIZE);
+    }
+
+    // Taille du tampon de lecture de chaque requête ; ADAPTIVE_BUFFER_SIZE => selon le débit mesuré
+    public UrlConnectionTransport(ConnectionPool pool, int bufferSize) {
+        this.pool = pool;
+        this.bufferSize = bufferSize;
+    }
+
+    // HEAD : pas de corps à jeter, la connexion retourne dans le cache keep-alive.
+    // Sans Accept-Ranges ni Content-Length, ou si le serveur refuse HEAD, une requête 0-0 tranche.
+    @Override
+    public ResourceInfo probe(String url, String ifNoneMatch, String ifModifiedSince) throws IOException {
+        HttpURLConnection conn = pool.open(url);
+        conn.setRequestMethod("HEAD");
+        conn.setRequestProperty("Accept-Encoding", "identity");
+        if (ifNoneMatch != null) {
+            conn.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            conn.setRequestProperty("If-Modified-Since", ifModifiedSince);
+        }
+        int status = conn.getResponseCode();
+        if (status == 304) {
+            ResourceInfo info = ResourceInfo.notModified(conn.getURL().toString(),
+                    conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"));
+            release(conn);
+            return info;
+        }
+        if (status >= 300 && status < 400) {
+            release(conn);
+            throw new HttpStatusException(status);
+        }
+        if (status < 300) {
+            String acceptRanges = conn.getHeaderField("Accept-Ranges");
+            ResourceInfo info = new ResourceInfo(conn.getURL().toString(), conn.getContentLengthLong(),
+                    conn.getHeaderField("ETag"), conn.getHeaderField("Last-Modified"),
+                    "bytes".equalsIgnoreCase(acceptRanges));
+            release(conn);
+            if (acceptRanges != null && info.getSize() >= 0) {
+                return info;
+            }
+            url = info.getLocation();
+        } else {
+            release(conn);
+        }
+        return probeRange(url);
+    }
+
+    private ResourceInfo probeRange(String url) throws IOException {
+        HttpURLConnection conn = pool.open(url);
+        conn.setRequestProperty("Range", "bytes=0-0");
+        conn.setRequestProperty("Accept-Encoding", "identity");
+        int status = conn.getResponseCode();
+        if (status != 200 && status != 206) {
+            release(conn);
+            throw new HttpStatusException(status);
+        }
+        long size = status == 206 ? Transport.parseContentRangeTotal(conn.getHeaderField("Content-Range"))
+                : conn.getContentLengthLong();
+        ResourceInfo info = new ResourceInfo(conn.getURL().toString(), size, conn.getHeaderField("ETag"),
+                conn.getHeaderField("Last-Modified"), status == 206);
+        if (status == 206) {
+            release(conn);
+        } else {
+            conn.disconnect(); // le corps complet arrive : on ne le lit pas
+        }
+        return info;
+    }
+
+    @Override
+    public RequestTimings fetch(String url, long from, long to, String ifRange, CancellationToken cancellation,
+                      BodyConsumer consumer) throws IOException {
+        HttpURLConnection conn = open(url, Transport.rangeHeader(from, to), ifRange);
+        AutoCloseable abort = conn::disconnect;
+        cancellation.register(abort);
+        try {
+            RequestTimings timings = connect(conn, from, to);
+            int status = conn.getResponseCode();
+            if (status != 206) {
+                try {
+                    Transport.checkRangeStatus(url, status, from, ifRange);
+                } catch (IOException e) {
+                    if (status == 200) {
+                        conn.disconnect(); // corps complet inutile
+                    } else {
+                        release(conn);
+                    }
+                    throw e;
+                }
+            }
+            long expected = to < 0 ? Long.MAX_VALUE : to - from + 1;
+            readBody(conn, expected, expected, consumer);
+            return timings;
+        } finally {
+            cancellation.unregister(abort);
+        }
+    }
+
+    @Override
+    public RequestTimings fetchStart(String url, long limit, CancellationToken cancellation, ResponseHandler handler)
+            throws IOException {
+        HttpURLConnection conn = open(url, Transport.rangeHeader(0, limit - 1), null);
+        AutoCloseable abort = conn::disconnect;
+        cancellation.register(abort);
+        try {
+            RequestTimings timings = connect(conn, 0, limit - 1);
+            int status = conn.getResponseCode();
+            if (status != 200 && status != 206) {
+                release(conn);
+                if (status == 416) {
+                    return null;
+                }
+                throw new HttpStatusException(status);
+            }
+            ResourceInfo info = new ResourceInfo(conn.getURL().toString(), status == 206
+                    ? Transport.parseContentRangeTotal(conn.getHeaderField("Content-Range"))
+                    : conn.getContentLengthLong(), conn.getHeaderField("ETag"),
+                    conn.getHeaderField("Last-Modified"), status == 206);
+            BodyConsumer consumer = handler.onResponse(info);
+            if (consumer == null) {
+                conn.disconnect(); // début d'un grand fichier, inutile
+                return timings;
+            }
+            long expected = conn.getContentLengthLong() < 0 ? Long.MAX_VALUE : conn.getContentLengthLong();
+            readBody(conn, expected, expected, consumer);
+            return timings;
+        } finally {
+            cancellation.unregister(abort);
+        }
+    }
+
+    @Override
+    public RequestTimings fetchRanges(String url, List<long[]> ranges, String ifRange, CancellationToken cancellation,
+                                      RangeConsumer consumer) throws IOException {
+        if (!acceptsMultipleRanges(url)) {
+            return null;
+        }
+        HttpURLConnection conn = open(url, Transport.rangesHeader(ranges), ifRange);
+        AutoCloseable abort = conn::disconnect;
+        cancellation.register(abort);
+        try {
+            RequestTimings timings = connect(conn, ranges.get(0)[0], ranges.get(ranges.size() - 1)[1]);
+            int status = conn.getResponseCode();
+            boolean refused;
+            try {
+                refused = Transport.multipleRangesRefused(url, status, ifRange, conn.getHeaderField("ETag"),
+                        conn.getHeaderField("Last-Modified"));
+            } catch (IOException e) {
+                if (status == 200) {
+                    conn.disconnect();
+                } else {
+                    release(conn);
+                }
+                throw e;
+            }
+            if (refused) {
+                singleRangeHosts.add(conn.getURL().getHost());
+                conn.disconnect();
+                return null;
+            }
+            ByteRangesBody body = new ByteRangesBody(ranges, conn.getContentType(),
+                    conn.getHeaderField("Content-Range"), consumer);
+            long requested = 0;
+            for (long[] range : ranges) {
+                requested += range[1] - range[0] + 1;
+            }
+            // taille du corps inconnue (en-têtes des parties) : un arrêt anticipé coupe la connexion
+            readBody(conn, requested, Long.MAX_VALUE, body);
+            return timings;
+        } finally {
+            cancellation.unregister(abort);
+        }
+    }
+
+    @Override
+    public boolean acceptsMultipleRanges(String url) {
+        return !singleRangeHosts.contains(URI.create(url).getHost());
+    }
+
+    private HttpURLConnection open(String url, String range, String ifRange) throws IOException {
+        HttpURLConnection conn = pool.open(url);
+        if (range != null) {
+            conn.setRequestProperty("Range", range);
+        }
+        conn.setRequestProperty("Accept-Encoding", "identity");
+        if (ifRange != null) {
+            conn.setRequestProperty("If-Range", ifRange);
+        }
+        return conn;
+    }
+
+    private static RequestTimings connect(HttpURLConnection conn, long from, long to) throws IOException {
+        RangeConnectEvent event = new RangeConnectEvent();
+        event.begin();
+        long start = System.nanoTime();
+        conn.connect(); // immédiat si une connexion keep-alive est disponible
+        long connected = System.nanoTime();
+        int status = conn.getResponseCode();
+        RequestTimings timings = new RequestTimings(connected - start, System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.host = conn.getURL().getHost();
+            event.rangeStart = from;
+            event.rangeEnd = to;
+            event.status = status;
+            event.connectTime = timings.getConnectNanos();
+            event.commit();
+        }
+        return timings;
+    }
+
+    // sizeHint borne la taille du tampon ; expected, la longueur du corps au-delà de laquelle un arrêt
+    // du consumer peut laisser la connexion dans le cache keep-alive
+    private void readBody(HttpURLConnection conn, long sizeHint, long expected, BodyConsumer consumer)
+            throws IOException {
+        // lectures de size octets au plus, même sous la plus petite classe : seul le tampon du pool est plus grand
+        int size = (int) Math.max(1, Math.min(readSize(), sizeHint));
+        ByteBuffer staging = BufferPool.sharedHeap().acquire(size);
+        ByteBuffer data = BufferPool.shared().acquire(size);
+        long received = 0;
+        long bodyStart = System.nanoTime();
+        try (InputStream in = conn.getInputStream()) {
+            byte[] buffer = staging.array();
+            int len;
+            while ((len = in.read(buffer, 0, size)) != -1) {
+                received += len;
+                data.clear();
+                data.put(buffer, 0, len).flip();
+                if (!consumer.accept(data) && received < expected) {
+                    // Fermer le flux viderait le reste de la réponse : on sacrifie la connexion
+                    conn.disconnect();
+                    break;
+                }
+            }
+        } finally {
+            BufferPool.sharedHeap().release(staging);
+            BufferPool.shared().release(data);
+            recordRate(received, System.nanoTime() - bodyStart);
+        }
+    }
+
+    private int readSize() {
+        if (bufferSize != ADAPTIVE_BUFFER_SIZE) {
+            return Math.min(bufferSize, BufferPool.MAX_SIZE);
+        }
+        return BufferPool.classSize((int) Math.min(BufferPool.MAX_SIZE, connectionRate * TARGET_READ_NANOS / 1e9));
+    }
+
+    // Seules les requêtes assez longues pour être représentatives comptent
+    private void recordRate(long bytes, long nanos) {
+        if (bytes < BufferPool.MIN_SIZE * 4L || nanos <= 0) {
+            return;
+        }
+        double rate = bytes * 1e9 / nanos;
+        double previous = connectionRate;
+        connectionRate = previous == 0 ? rate : previous + RATE_SMOOTHING * (rate - previous);
+    }
+
+    // Vide et ferme la réponse sans fermer la socket, qui reste réutilisable
+    private static void release(HttpURLConnection conn) {
+        try (InputStream in = conn.getErrorStream() != null ? conn.getErrorStream() : conn.getInputStream()) {
+            if (in != null) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        } catch (IOException e) {
+            conn.disconnect();
+        }
+    }
+}
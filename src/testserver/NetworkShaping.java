@@ -0,0 +1,89 @@
+package testserver;
+
+// Simulated network and server conditions applied by RangeServer to every response.
+// All settings can be changed while the server runs; 0 disables a setting.
+public class NetworkShaping {
+    private volatile long bytesPerSecond;           // cap per response (one response at a time per connection)
+    private volatile long latencyMillis;            // delay before the response headers
+    private volatile double resetProbability;       // connection dropped somewhere in the body
+    private volatile double stragglerProbability;   // response served at stragglerBytesPerSecond
+    private volatile long stragglerBytesPerSecond = 64 * 1024;
+    private volatile boolean ignoreRanges;          // answer 200 with the full body to every Range request
+    private volatile boolean chunked;               // no Content-Length: chunked bodies, HEAD without length
+    private volatile boolean singleRangeOnly;       // answer 200 with the full body to multi-range requests
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public void setBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public double getResetProbability() {
+        return resetProbability;
+    }
+
+    public void setResetProbability(double resetProbability) {
+        this.resetProbability = resetProbability;
+    }
+
+    public double getStragglerProbability() {
+        return stragglerProbability;
+    }
+
+    public void setStragglerProbability(double stragglerProbability) {
+        this.stragglerProbability = stragglerProbability;
+    }
+
+    public long getStragglerBytesPerSecond() {
+        return stragglerBytesPerSecond;
+    }
+
+    public void setStragglerBytesPerSecond(long stragglerBytesPerSecond) {
+        this.stragglerBytesPerSecond = stragglerBytesPerSecond;
+    }
+
+    public boolean isIgnoreRanges() {
+        return ignoreRanges;
+    }
+
+    public void setIgnoreRanges(boolean ignoreRanges) {
+        this.ignoreRanges = ignoreRanges;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    public void setChunked(boolean chunked) {
+        this.chunked = chunked;
+    }
+
+    public boolean isSingleRangeOnly() {
+        return singleRangeOnly;
+    }
+
+    public void setSingleRangeOnly(boolean singleRangeOnly) {
+        this.singleRangeOnly = singleRangeOnly;
+    }
+
+    @Override
+    public String toString() {
+        return "cap " + (bytesPerSecond > 0 ? bytesPerSecond / 1024 + " KB/s" : "none")
+                + ", latency " + latencyMillis + " ms"
+                + ", resets " + resetProbability
+                + ", stragglers " + stragglerProbability + " at " + stragglerBytesPerSecond / 1024 + " KB/s"
+                + (ignoreRanges ? ", ranges ignored" : "")
+                + (chunked ? ", chunked" : "")
+                + (singleRangeOnly ? ", single ranges only" : "");
+    }
+}
@@ -0,0 +1,412 @@
+package testserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Loopback HTTP server for benchmarks, tests and offline runs. Serves generated or on-disk files
+// with HEAD, Accept-Ranges, ETag, Last-Modified, conditional 304, If-Range, single-range 206 and
+// multipart/byteranges responses, under simulated network conditions (see NetworkShaping).
+//   java -cp out testserver.RangeServer [-port n] [-size MB | -file path] [-cap KB/s] [-latency ms]
+//        [-reset p] [-straggler p] [-straggler-cap KB/s] [-ignore-ranges] [-single-range] [-chunked]
+public class RangeServer implements AutoCloseable {
+    private static final int WRITE_SLICE = 16 * 1024;
+    // requested ranges closer than this are served as one part, as RFC 9110 lets servers do
+    private static final long COALESCE_GAP = 1024;
+    private static final String BOUNDARY = "RangeServerByteRanges";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Resource> resources = new ConcurrentHashMap<>();
+    private final NetworkShaping shaping = new NetworkShaping();
+
+    static {
+        // without TCP_NODELAY the last segment of a small response waits for the client's delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    // port 0 picks a free port
+    public RangeServer(int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public RangeServer() throws IOException {
+        this(0);
+    }
+
+    public NetworkShaping getShaping() {
+        return shaping;
+    }
+
+    // Random content, reproducible for a given name and size
+    public byte[] addGenerated(String name, int size) {
+        byte[] content = new byte[size];
+        new Random(name.hashCode() * 31L + size).nextBytes(content);
+        resources.put(name, new Resource(content, null,
+                "\"" + Integer.toHexString(size) + "-" + Integer.toHexString(Arrays.hashCode(content)) + "\"",
+                System.currentTimeMillis()));
+        return content;
+    }
+
+    public void addFile(String name, Path file) throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        resources.put(name, new Resource(null, file,
+                "\"" + Long.toHexString(Files.size(file)) + "-" + Long.toHexString(modified) + "\"", modified));
+    }
+
+    public String getUrl(String name) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + name;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Resource resource = resources.get(exchange.getRequestURI().getPath().substring(1));
+            if (resource == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            pause(shaping.getLatencyMillis());
+
+            long size = resource.size();
+            exchange.getResponseHeaders().add("ETag", resource.etag);
+            exchange.getResponseHeaders().add("Last-Modified", DateTimeFormatter.RFC_1123_DATE_TIME
+                    .format(Instant.ofEpochMilli(resource.lastModified).atZone(ZoneOffset.UTC)));
+            if (notModified(exchange, resource)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            if (!shaping.isIgnoreRanges()) {
+                exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            }
+            int status = 200;
+            Body body = (offset, buffer, n) -> resource.read(offset, buffer, 0, n);
+            long length = size;
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            boolean validRange = ifRange == null || ifRange.equals(resource.etag);
+            // multiple ranges with singleRangeOnly: full 200 response, which RFC 9110 allows
+            if (range != null && validRange && !shaping.isIgnoreRanges()
+                    && !(shaping.isSingleRangeOnly() && range.contains(","))) {
+                List<long[]> ranges = parseRanges(range, size);
+                if (ranges.isEmpty()) {
+                    exchange.getResponseHeaders().add("Content-Range", "bytes */" + size);
+                    exchange.sendResponseHeaders(416, -1);
+                    return;
+                }
+                status = 206;
+                if (ranges.size() == 1) {
+                    long start = ranges.get(0)[0];
+                    long end = ranges.get(0)[1];
+                    body = (offset, buffer, n) -> resource.read(start + offset, buffer, 0, n);
+                    length = end - start + 1;
+                    exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + size);
+                } else {
+                    MultipartBody multipart = new MultipartBody(resource, ranges, size);
+                    body = multipart;
+                    length = multipart.length();
+                    exchange.getResponseHeaders().add("Content-Type", "multipart/byteranges; boundary=" + BOUNDARY);
+                }
+            }
+
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                if (!shaping.isChunked()) {
+                    exchange.getResponseHeaders().add("Content-Length", String.valueOf(length));
+                }
+                exchange.sendResponseHeaders(status, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(status, shaping.isChunked() ? 0 : length);
+            sendBody(exchange.getResponseBody(), body, length);
+        }
+    }
+
+    // If-None-Match wins over If-Modified-Since (RFC 9110); dates have a one-second resolution
+    private static boolean notModified(HttpExchange exchange, Resource resource) {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            return ifNoneMatch.equals("*") || Arrays.asList(ifNoneMatch.split("\\s*,\\s*")).contains(resource.etag);
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = Instant.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(ifModifiedSince)).toEpochMilli();
+            return resource.lastModified / 1000 <= since / 1000;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
+
+    // Paced writes; a reset ends the exchange early so the client sees a truncated body
+    private void sendBody(OutputStream out, Body body, long length) throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long rate = random.nextDouble() < shaping.getStragglerProbability()
+                ? shaping.getStragglerBytesPerSecond() : shaping.getBytesPerSecond();
+        long resetAt = random.nextDouble() < shaping.getResetProbability() ? random.nextLong(length) : -1;
+
+        byte[] slice = new byte[WRITE_SLICE];
+        long begin = System.nanoTime();
+        long sent = 0;
+        while (sent < length) {
+            int n = (int) Math.min(slice.length, length - sent);
+            if (resetAt >= 0 && sent + n > resetAt) {
+                n = (int) (resetAt - sent);
+                body.read(sent, slice, n);
+                out.write(slice, 0, n);
+                out.flush();
+                return;
+            }
+            body.read(sent, slice, n);
+            out.write(slice, 0, n);
+            sent += n;
+            if (rate > 0) {
+                long due = begin + sent * 1_000_000_000L / rate;
+                pause((due - System.nanoTime()) / 1_000_000);
+            }
+        }
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // "bytes=a-b", "bytes=a-" or "bytes=-n"; null when unsatisfiable
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] parts = header.substring(6).trim().split("-", -1);
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (parts[0].isEmpty()) {
+                long suffix = Long.parseLong(parts[1]);
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(parts[0]);
+                end = parts[1].isEmpty() ? size - 1 : Math.min(size - 1, Long.parseLong(parts[1]));
+            }
+            return start <= end && start < size ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Comma-separated ranges, sorted and merged when they overlap or are less than COALESCE_GAP apart;
+    // unsatisfiable ranges are dropped, so an empty list means 416
+    static List<long[]> parseRanges(String header, long size) {
+        List<long[]> ranges = new ArrayList<>();
+        if (!header.startsWith("bytes=")) {
+            return ranges;
+        }
+        for (String spec : header.substring(6).split(",")) {
+            long[] bounds = parseRange("bytes=" + spec.trim(), size);
+            if (bounds != null) {
+                ranges.add(bounds);
+            }
+        }
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + COALESCE_GAP) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private static class Resource {
+        final byte[] content; // generated content, or null for a file
+        final Path file;
+        final String etag;
+        final long lastModified;
+
+        Resource(byte[] content, Path file, String etag, long lastModified) {
+            this.content = content;
+            this.file = file;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        long size() throws IOException {
+            return content != null ? content.length : Files.size(file);
+        }
+
+        void read(long position, byte[] buffer, int offset, int length) throws IOException {
+            if (content != null) {
+                System.arraycopy(content, (int) position, buffer, offset, length);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer target = ByteBuffer.wrap(buffer, offset, length);
+                while (target.hasRemaining() && channel.read(target, position + target.position() - offset) >= 0) {
+                    // positional reads until the slice is full
+                }
+            }
+        }
+    }
+
+    // Response body, read by offset so that pacing and resets apply to any kind of response
+    private interface Body {
+        void read(long offset, byte[] buffer, int length) throws IOException;
+    }
+
+    // multipart/byteranges body (RFC 9110, 14.6): each part is a header block followed by its range
+    private static class MultipartBody implements Body {
+        private final Resource resource;
+        private final List<byte[]> texts = new ArrayList<>();   // part headers, then the closing delimiter
+        private final List<long[]> ranges;
+        private final long length;
+
+        MultipartBody(Resource resource, List<long[]> ranges, long size) {
+            this.resource = resource;
+            this.ranges = ranges;
+            long total = 0;
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                byte[] text = ((i == 0 ? "" : "\r\n") + "--" + BOUNDARY + "\r\n"
+                        + "Content-Type: application/octet-stream\r\n"
+                        + "Content-Range: bytes " + range[0] + "-" + range[1] + "/" + size + "\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1);
+                texts.add(text);
+                total += text.length + range[1] - range[0] + 1;
+            }
+            byte[] close = ("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            texts.add(close);
+            this.length = total + close.length;
+        }
+
+        long length() {
+            return length;
+        }
+
+        @Override
+        public void read(long offset, byte[] buffer, int length) throws IOException {
+            int filled = 0;
+            long segmentStart = 0;
+            for (int i = 0; i < texts.size() && filled < length; i++) {
+                byte[] text = texts.get(i);
+                filled += copy(segmentStart, text.length, offset + filled, buffer, filled, length - filled, text, -1);
+                segmentStart += text.length;
+                if (i < ranges.size()) {
+                    long[] range = ranges.get(i);
+                    long rangeLength = range[1] - range[0] + 1;
+                    filled += copy(segmentStart, rangeLength, offset + filled, buffer, filled, length - filled,
+                            null, range[0]);
+                    segmentStart += rangeLength;
+                }
+            }
+        }
+
+        // Copies the part of segment [start, start + segmentLength) found at body offset `at`:
+        // from text, or from the resource at position; returns the number of bytes copied
+        private int copy(long start, long segmentLength, long at, byte[] buffer, int offset, int max, byte[] text,
+                         long position) throws IOException {
+            if (at < start || at >= start + segmentLength) {
+                return 0;
+            }
+            int n = (int) Math.min(max, start + segmentLength - at);
+            if (text != null) {
+                System.arraycopy(text, (int) (at - start), buffer, offset, n);
+            } else {
+                resource.read(position + at - start, buffer, offset, n);
+            }
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = 8080;
+        int sizeMb = 64;
+        String file = null;
+        NetworkShaping shaping = new NetworkShaping();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-port" -> port = Integer.parseInt(args[++i]);
+                case "-size" -> sizeMb = Integer.parseInt(args[++i]);
+                case "-file" -> file = args[++i];
+                case "-cap" -> shaping.setBytesPerSecond(Long.parseLong(args[++i]) * 1024);
+                case "-latency" -> shaping.setLatencyMillis(Long.parseLong(args[++i]));
+                case "-reset" -> shaping.setResetProbability(Double.parseDouble(args[++i]));
+                case "-straggler" -> shaping.setStragglerProbability(Double.parseDouble(args[++i]));
+                case "-straggler-cap" -> shaping.setStragglerBytesPerSecond(Long.parseLong(args[++i]) * 1024);
+                case "-ignore-ranges" -> shaping.setIgnoreRanges(true);
+                case "-single-range" -> shaping.setSingleRangeOnly(true);
+                case "-chunked" -> shaping.setChunked(true);
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        RangeServer server = new RangeServer(port);
+        server.copyShaping(shaping);
+        String name;
+        if (file != null) {
+            name = Paths.get(file).getFileName().toString();
+            server.addFile(name, Paths.get(file));
+        } else {
+            name = "generated-" + sizeMb + "mb.pdf";
+            server.addGenerated(name, sizeMb * 1024 * 1024);
+        }
+        System.out.println("Serving " + server.getUrl(name) + " (" + shaping + "), Ctrl-C to stop");
+    }
+
+    private void copyShaping(NetworkShaping from) {
+        shaping.setBytesPerSecond(from.getBytesPerSecond());
+        shaping.setLatencyMillis(from.getLatencyMillis());
+        shaping.setResetProbability(from.getResetProbability());
+        shaping.setStragglerProbability(from.getStragglerProbability());
+        shaping.setStragglerBytesPerSecond(from.getStragglerBytesPerSecond());
+        shaping.setIgnoreRanges(from.isIgnoreRanges());
+        shaping.setSingleRangeOnly(from.isSingleRangeOnly());
+        shaping.setChunked(from.isChunked());
+    }
+}
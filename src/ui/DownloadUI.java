@@ -1,9 +1,18 @@
 package ui;
 
-import core.Downloader;
+import core.BandwidthLimiter;
+import core.DownloadJob;
+import core.DownloadManager;
+import core.DownloadPriority;
+import core.DownloadProgress;
+import core.PdfMetadata;
+import core.PdfMetadataCache;
+import core.ProgressSampler;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
@@ -20,10 +29,17 @@ import java.util.List;
 public class DownloadUI extends JFrame {
     private JTextField urlField;
     private JTextField threadField;
+    private JTextField speedLimitField;
     private JButton startButton;
+    private JButton cancelButton;
+    private transient DownloadManager downloadManager;
     private JTextArea logArea;
+    private JLabel progressLabel;
+    private Timer progressTimer;
+    private final transient ProgressSampler progressSampler = new ProgressSampler();
     private Timer pulseTimer;
     private JComboBox<String> formatComboBox;
+    private JComboBox<DownloadPriority> priorityComboBox;
     private float pulseAlpha = 0.3f;
     private boolean pulseDirection = true;
     
@@ -45,8 +61,14 @@ public class DownloadUI extends JFrame {
     private static final Color SUCCESS_GREEN = new Color(34, 197, 94);
     private static final Color WARNING_ORANGE = new Color(251, 146, 60);
 
+    // "auto" in the THREADS field: adaptive concurrency bounds
+    private static final int AUTO_INITIAL_THREADS = 4;
+    private static final int AUTO_MAX_THREADS = 32;
+
     public DownloadUI() {
         initializeUI();
+        createDownloadManager();
+        startProgressSampler();
         setupAnimations();
         createFileManagerDialog();
         setVisible(true);
@@ -55,7 +77,7 @@ public class DownloadUI extends JFrame {
 
     private void initializeUI() {
         setTitle("AI Download Manager");
-        setSize(680, 620); // Increased height for new button
+        setSize(680, 780); // Increased height for new button, priority and speed rows
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setUndecorated(true);
@@ -233,6 +255,36 @@ public class DownloadUI extends JFrame {
         panel.add(formatPanel);
         panel.add(Box.createVerticalStrut(20));
 
+        // Queue priority ComboBox
+        JPanel priorityPanel = new JPanel(new BorderLayout());
+        priorityPanel.setOpaque(false);
+        JLabel priorityLabel = new JLabel("PRIORITY");
+        priorityLabel.setFont(new Font("SansSerif", Font.BOLD, 12));
+        priorityLabel.setForeground(Color.WHITE);
+        priorityPanel.add(priorityLabel, BorderLayout.NORTH);
+
+        priorityComboBox = new JComboBox<>(DownloadPriority.values());
+        priorityComboBox.setSelectedItem(DownloadPriority.NORMAL);
+        priorityComboBox.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+        priorityComboBox.setFont(new Font("SansSerif", Font.PLAIN, 14));
+        priorityPanel.add(priorityComboBox, BorderLayout.SOUTH);
+
+        panel.add(priorityPanel);
+        panel.add(Box.createVerticalStrut(20));
+
+        // Global bandwidth cap, applied live to running downloads
+        JPanel speedPanel = createInputGroup("MAX SPEED (KB/S, 0 = UNLIMITED)", "0");
+        speedLimitField = (JTextField) ((JPanel) speedPanel.getComponent(1)).getComponent(0);
+        speedLimitField.addActionListener(e -> applySpeedLimit());
+        speedLimitField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                applySpeedLimit();
+            }
+        });
+        panel.add(speedPanel);
+        panel.add(Box.createVerticalStrut(20));
+
         // Thread Input and Start Button Row
         JPanel controlPanel = new JPanel(new BorderLayout(15, 0));
         controlPanel.setOpaque(false);
@@ -244,13 +296,18 @@ public class DownloadUI extends JFrame {
         startButton = createModernButton("START DOWNLOAD", ACCENT_BLUE, SUCCESS_GREEN);
         startButton.setPreferredSize(new Dimension(200, 50));
 
+        cancelButton = createModernButton("CANCEL ALL", CARD_BG, WARNING_ORANGE);
+        cancelButton.setEnabled(false);
+
         controlPanel.add(threadPanel, BorderLayout.WEST);
+        controlPanel.add(cancelButton, BorderLayout.CENTER);
         controlPanel.add(startButton, BorderLayout.EAST);
 
         panel.add(controlPanel);
 
-        // Add action listener
+        // Add action listeners
         startButton.addActionListener(e -> handleDownload());
+        cancelButton.addActionListener(e -> cancelAllDownloads());
 
         return panel;
     }
@@ -372,6 +429,15 @@ public class DownloadUI extends JFrame {
         logLabel.setFont(new Font("Segoe UI", Font.BOLD, 11));
         logLabel.setForeground(ACCENT_CYAN);
 
+        progressLabel = new JLabel(" ");
+        progressLabel.setFont(new Font("Segoe UI", Font.BOLD, 11));
+        progressLabel.setForeground(SUCCESS_GREEN);
+
+        JPanel logHeader = new JPanel(new BorderLayout());
+        logHeader.setOpaque(false);
+        logHeader.add(logLabel, BorderLayout.WEST);
+        logHeader.add(progressLabel, BorderLayout.EAST);
+
         logArea = new JTextArea(6, 0) { // Reduced height to accommodate new button
             @Override
             protected void paintComponent(Graphics g) {
@@ -398,7 +464,7 @@ public class DownloadUI extends JFrame {
         scrollPane.getViewport().setOpaque(false);
         scrollPane.setBorder(null);
 
-        panel.add(logLabel, BorderLayout.NORTH);
+        panel.add(logHeader, BorderLayout.NORTH);
         panel.add(Box.createVerticalStrut(8), BorderLayout.CENTER);
         panel.add(scrollPane, BorderLayout.SOUTH);
 
@@ -495,54 +561,111 @@ public class DownloadUI extends JFrame {
         buttonPulseTimer.start();
     }
 
+    private void createDownloadManager() {
+        downloadManager = new DownloadManager(new TextAreaDownloadListener(logArea));
+        downloadManager.setListener(() -> SwingUtilities.invokeLater(this::updateQueueControls));
+    }
+
+    // Single reader of the engine's progress counters: overall percent, speed and ETA, 4 times a second
+    private void startProgressSampler() {
+        progressTimer = new Timer(250, e -> updateProgress());
+        progressTimer.start();
+    }
+
+    private void updateProgress() {
+        progressSampler.sample(downloadManager.getTransferredBytes());
+        List<DownloadJob> active = downloadManager.getActive();
+        if (active.isEmpty()) {
+            progressLabel.setText(" ");
+            return;
+        }
+        long size = 0;
+        long completed = 0;
+        for (DownloadJob job : active) {
+            DownloadProgress progress = job.getProgress();
+            if (progress != null && progress.getFileSize() > 0) {
+                size += progress.getFileSize();
+                completed += progress.getCompletedBytes();
+            }
+        }
+        long eta = progressSampler.getEtaSeconds(size - completed);
+        progressLabel.setText(String.format("%d ACTIVE  ·  %d%%  ·  %s/s  ·  ETA %s",
+                active.size(), size > 0 ? completed * 100 / size : 0,
+                formatFileSize((long) progressSampler.getSpeed()),
+                eta < 0 ? "--:--" : String.format("%d:%02d", eta / 60, eta % 60)));
+    }
+
+    private void updateQueueControls() {
+        boolean idle = downloadManager.isIdle();
+        cancelButton.setEnabled(!idle);
+        cancelButton.setText("CANCEL ALL");
+        startButton.setText(idle ? "START DOWNLOAD" : "ADD TO QUEUE");
+        if (fileManagerDialog != null) {
+            fileManagerDialog.refreshFileList();
+        }
+    }
+
+    private void applySpeedLimit() {
+        long kilobytesPerSecond;
+        try {
+            kilobytesPerSecond = Long.parseLong(speedLimitField.getText().trim());
+            if (kilobytesPerSecond < 0) throw new NumberFormatException();
+        } catch (NumberFormatException ex) {
+            logArea.append("\n[ERROR] Invalid speed limit. Please enter a number of KB/s (0 = unlimited).");
+            logArea.setCaretPosition(logArea.getDocument().getLength());
+            return;
+        }
+        if (kilobytesPerSecond * 1024 == BandwidthLimiter.shared().getGlobalLimit()) {
+            return;
+        }
+        BandwidthLimiter.shared().setGlobalLimit(kilobytesPerSecond * 1024);
+        logArea.append(kilobytesPerSecond == 0
+                ? "\n[INFO] Speed limit removed"
+                : "\n[INFO] Speed limit set to " + kilobytesPerSecond + " KB/s");
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+
+    private void cancelAllDownloads() {
+        downloadManager.cancelAll();
+        cancelButton.setEnabled(false);
+        cancelButton.setText("CANCELLING...");
+    }
+
     private void handleDownload() {
-        String url = urlField.getText().trim();
+        String urlText = urlField.getText().trim();
+        String threadText = threadField.getText().trim();
+        boolean adaptive = threadText.equalsIgnoreCase("auto");
         int threads;
 
         try {
-            threads = Integer.parseInt(threadField.getText().trim());
+            threads = adaptive ? AUTO_INITIAL_THREADS : Integer.parseInt(threadText);
             if (threads <= 0) throw new NumberFormatException();
         } catch (NumberFormatException ex) {
-            logArea.append("\n[ERROR] Invalid thread count. Please enter a positive number.");
+            logArea.append("\n[ERROR] Invalid thread count. Please enter a positive number or \"auto\".");
             logArea.setCaretPosition(logArea.getDocument().getLength());
             return;
         }
 
-        if (url.isEmpty() || url.equals("Enter the file URL to download...")) {
+        if (urlText.isEmpty() || urlText.equals("Enter the file URL to download...")) {
             logArea.append("\n[ERROR] Please enter a valid URL.");
             logArea.setCaretPosition(logArea.getDocument().getLength());
             return;
         }
 
         String selectedFormat = (String) formatComboBox.getSelectedItem();
+        DownloadPriority priority = (DownloadPriority) priorityComboBox.getSelectedItem();
 
-        logArea.append("\n[INFO] Starting download with " + threads + " threads...");
-        logArea.append("\n[INFO] URL: " + url);
+        // Several URLs separated by spaces are queued together
+        String[] urls = urlText.split("\\s+");
+        logArea.append(adaptive
+                ? "\n[INFO] Queueing " + urls.length + " download(s) with adaptive concurrency..."
+                : "\n[INFO] Queueing " + urls.length + " download(s) with " + threads + " threads each...");
         logArea.setCaretPosition(logArea.getDocument().getLength());
 
-        // Disable button during download
-        startButton.setEnabled(false);
-        startButton.setText("DOWNLOADING...");
-
-        // Create downloads directory if it doesn't exist
-        File downloadsDir = new File("downloads");
-        if (!downloadsDir.exists()) {
-            downloadsDir.mkdirs();
+        for (String url : urls) {
+            downloadManager.submit(url, selectedFormat, threads, adaptive ? AUTO_MAX_THREADS : 0, priority);
         }
-
-        // Create and start downloader with timing
-        Downloader downloader = new Downloader(url, threads, selectedFormat, logArea);
-
-        new Thread(() -> {
-            downloader.startDownload();
-
-            SwingUtilities.invokeLater(() -> {
-                startButton.setEnabled(true);
-                startButton.setText("START DOWNLOAD");
-                logArea.setCaretPosition(logArea.getDocument().getLength());
-                
-            });
-        }).start();
+        updateQueueControls();
     }
 
     private void createFileManagerDialog() {
@@ -751,11 +874,61 @@ public class DownloadUI extends JFrame {
                     getFileExtension(selectedFile.getName())
                 );
                 fileInfoArea.setText(info);
+                if (selectedFile.getName().toLowerCase().endsWith(".pdf")) {
+                    showPdfInfo(selectedFile, info);
+                }
             } else {
                 fileInfoArea.setText("Select a file to view its information.");
             }
         }
 
+        // Read lazily off the EDT: only the trailer, cross-reference entries and Info/XMP objects are read,
+        // and the result is cached by file size and modification time
+        private void showPdfInfo(DownloadedFile file, String info) {
+            fileInfoArea.setText(info + "\n\nPDF: reading...");
+            Thread.ofVirtual().name("pdf-metadata").start(() -> {
+                String text = "PDF: unreadable";
+                try {
+                    text = formatPdfMetadata(PdfMetadataCache.shared().forFile(Paths.get(file.getPath())));
+                } catch (IOException e) {
+                    text = "PDF: unreadable (" + e.getMessage() + ")";
+                } catch (RuntimeException e) {
+                    text = "PDF: unreadable (" + e + ")";
+                } finally {
+                    // posted even when an Error escapes, so the panel never stays on "reading..."
+                    String pdfText = text;
+                    SwingUtilities.invokeLater(() -> {
+                        if (fileList.getSelectedValue() == file) {
+                            fileInfoArea.setText(info + "\n\n" + pdfText);
+                        }
+                    });
+                }
+            });
+        }
+
+        private String formatPdfMetadata(PdfMetadata metadata) {
+            StringBuilder text = new StringBuilder("PDF DOCUMENT\n============\n\n");
+            text.append("Pages: ").append(metadata.getPageCount() < 0 ? "unknown" : metadata.getPageCount());
+            if (metadata.getTitle() != null) {
+                text.append("\n\nTitle: ").append(metadata.getTitle());
+            }
+            if (metadata.getAuthor() != null) {
+                text.append("\n\nAuthor: ").append(metadata.getAuthor());
+            }
+            if (metadata.getProducer() != null) {
+                text.append("\n\nProducer: ").append(metadata.getProducer());
+            }
+            text.append("\n\nEncrypted: ");
+            if (metadata.isEncrypted()) {
+                text.append("yes (").append(metadata.getEncryption()).append(")")
+                        .append("\n\nPrinting: ").append(metadata.canPrint() ? "allowed" : "not allowed")
+                        .append("\n\nCopying: ").append(metadata.canCopy() ? "allowed" : "not allowed");
+            } else {
+                text.append("no");
+            }
+            return text.toString();
+        }
+
         private void openSelectedFile() {
             DownloadedFile selectedFile = fileList.getSelectedValue();
             if (selectedFile != null) {
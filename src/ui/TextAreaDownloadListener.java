@@ -0,0 +1,47 @@
+package ui;
+
+import core.DownloadListener;
+
+import javax.swing.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Swing adapter for the core engine. Log lines from engine threads are queued and
+// flushed in a single EDT task, so a burst of messages costs one append and one caret move.
+public class TextAreaDownloadListener implements DownloadListener {
+    private static final int MAX_LOG_CHARS = 200_000; // older lines are dropped beyond this
+
+    private final JTextArea logArea;
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public TextAreaDownloadListener(JTextArea logArea) {
+        this.logArea = logArea;
+    }
+
+    @Override
+    public void onLog(String message) {
+        pending.add(message);
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        StringBuilder text = new StringBuilder();
+        String message;
+        while ((message = pending.poll()) != null) {
+            text.append('\n').append(message);
+        }
+        if (text.length() == 0) {
+            return;
+        }
+        logArea.append(text.toString());
+        int overflow = logArea.getDocument().getLength() - MAX_LOG_CHARS;
+        if (overflow > 0) {
+            logArea.replaceRange("", 0, overflow);
+        }
+        logArea.setCaretPosition(logArea.getDocument().getLength());
+    }
+}